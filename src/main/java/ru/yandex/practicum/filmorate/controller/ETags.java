@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.util.StringJoiner;
+
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String strong(Object... parts) {
+        StringJoiner etag = new StringJoiner("-", "\"", "\"");
+
+        for (Object part : parts) {
+            etag.add(String.valueOf(part));
+        }
+
+        return etag.toString();
+    }
+
+}
@@ -58,6 +58,15 @@ public class ErrorHandler {
         );
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ExceptionResponse handleStorageOverloadedException(final StorageOverloadedException e) {
+        log.error(String.format(e.getMessage()));
+        return new ExceptionResponse(
+                String.format(e.getMessage())
+        );
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ExceptionResponse handleRecordNotFoundException(final RecordNotFoundException e) {
@@ -1,59 +1,141 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.StorageExecutors;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
 @RequiredArgsConstructor
 public class FilmController {
+    static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final StorageExecutors storageExecutors;
+    private final RecommendationService recommendationService;
+    @Value("${filmorate.export.timeout-ms:600000}")
+    private long exportTimeoutMs = 600000;
 
     @GetMapping
-    public List<Film> getAll() {
-        return filmService.getAll();
+    public CompletableFuture<List<Film>> getAll(FilmFilter filter) {
+        return storageExecutors.read(() -> filter.isEmpty() ? filmService.getAll() : filmService.findByFilter(filter));
+    }
+
+    @GetMapping(params = "limit")
+    public CompletableFuture<ResponseEntity<List<Film>>> getPage(@RequestParam(required = false) Long after,
+                                                                 @RequestParam Integer limit,
+                                                                 FilmFilter filter) {
+        return storageExecutors.read(() ->
+                CursorPageResponses.toResponse(filmService.getPage(after, limit, filter)));
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON_MEDIA_TYPE)
+    public WebAsyncTask<Void> exportAll(HttpServletResponse response) {
+        response.setContentType(NDJSON_MEDIA_TYPE);
+
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+
+            generator.setRootValueSeparator(null);
+            filmService.exportAll(film -> {
+                try {
+                    generator.writeObject(film);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+
+            return null;
+        });
     }
 
     @PostMapping
-    public Film addNew(@RequestBody Film film) {
-        return filmService.addNew(film);
+    public CompletableFuture<Film> addNew(@RequestBody Film film) {
+        return storageExecutors.write(() -> filmService.addNew(film));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<List<BatchItemResult>> addNewBatch(@RequestBody List<Film> films) {
+        return storageExecutors.write(() -> filmService.addNewBatch(films));
     }
 
     @PutMapping
-    public Film change(@RequestBody Film film) {
-        return filmService.change(film);
+    public CompletableFuture<Film> change(@RequestBody Film film) {
+        return storageExecutors.write(() -> filmService.change(film));
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<List<Film>> search(@RequestParam(name = "q") String query,
+                                                @RequestParam(required = false) Integer limit) {
+        return storageExecutors.read(() -> filmService.search(query, limit));
     }
 
     @GetMapping("/{id}")
-    public Film getById(@PathVariable Long id) {
-        return filmService.getFilmById(id);
+    public CompletableFuture<Film> getById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.strong("film", id, filmService.getFilmVersion(id)))) {
+            return null;
+        }
+
+        return storageExecutors.read(() -> filmService.getFilmById(id));
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public long likeFilmByUser(@PathVariable("id") Long filId,
-                               @PathVariable("userId") Long userId) {
-        filmService.likeFilmByUser(filId, userId);
+    public CompletableFuture<Long> likeFilmByUser(@PathVariable("id") Long filId,
+                                                  @PathVariable("userId") Long userId) {
+        return storageExecutors.write(() -> {
+            filmService.likeFilmByUser(filId, userId);
 
-        return userId;
+            return userId;
+        });
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public long unlikeFilmByUser(@PathVariable("id") Long filmId,
-                                 @PathVariable("userId") Long userId) {
-        filmService.unlikeFilmByUser(filmId, userId);
+    public CompletableFuture<Long> unlikeFilmByUser(@PathVariable("id") Long filmId,
+                                                    @PathVariable("userId") Long userId) {
+        return storageExecutors.write(() -> {
+            filmService.unlikeFilmByUser(filmId, userId);
+
+            return userId;
+        });
+    }
+
+    @PostMapping("/likes/batch")
+    public CompletableFuture<List<BatchItemResult>> applyLikeEvents(@RequestBody List<LikeEvent> events) {
+        return storageExecutors.write(() -> filmService.applyLikeEvents(events));
+    }
 
-        return userId;
+    @GetMapping("/{id}/similar")
+    public CompletableFuture<List<Film>> getSimilar(@PathVariable Long id,
+                                                    @RequestParam(required = false) Integer count) {
+        return storageExecutors.read(() -> recommendationService.getSimilarFilms(id, count));
     }
 
     @GetMapping("/popular")
-    public List<Film> getTopCountPopular(@RequestParam(required = false, name = "count") Integer count) {
-        return filmService.topLikes(count);
+    public CompletableFuture<List<Film>> getTopCountPopular(
+            @RequestParam(required = false, name = "count") Integer count) {
+        return storageExecutors.read(() -> filmService.topLikes(count));
     }
 
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
@@ -19,12 +20,20 @@ public class GenreController {
     private final FilmService filmService;
 
     @GetMapping
-    public List<Genre> getAll() {
+    public List<Genre> getAll(WebRequest request) {
+        if (request.checkNotModified(ETags.strong("genres", filmService.getReferenceDataVersion()))) {
+            return null;
+        }
+
         return filmService.getAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre getById(@PathVariable Long id) {
+    public Genre getById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.strong("genre", id, filmService.getReferenceDataVersion()))) {
+            return null;
+        }
+
         return filmService.getGenreById(id);
     }
 
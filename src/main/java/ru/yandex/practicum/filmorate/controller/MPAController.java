@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
@@ -19,12 +20,20 @@ public class MPAController {
     private final FilmService filmService;
 
     @GetMapping
-    public List<MPA> getAll() {
+    public List<MPA> getAll(WebRequest request) {
+        if (request.checkNotModified(ETags.strong("mpas", filmService.getReferenceDataVersion()))) {
+            return null;
+        }
+
         return filmService.getAllMPAs();
     }
 
     @GetMapping("/{id}")
-    public MPA getById(@PathVariable Long id) {
+    public MPA getById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(ETags.strong("mpa", id, filmService.getReferenceDataVersion()))) {
+            return null;
+        }
+
         return filmService.getMPAById(id);
     }
 
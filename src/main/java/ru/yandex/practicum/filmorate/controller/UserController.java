@@ -2,12 +2,17 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.StorageExecutors;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
@@ -15,53 +20,86 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final StorageExecutors storageExecutors;
+    private final RecommendationService recommendationService;
 
     @GetMapping
-    public Set<User> getAll() {
-        return userService.getAll();
+    public CompletableFuture<Set<User>> getAll() {
+        return storageExecutors.read(userService::getAll);
+    }
+
+    @GetMapping(params = "limit")
+    public CompletableFuture<ResponseEntity<List<User>>> getPage(@RequestParam(required = false) Long after,
+                                                                 @RequestParam Integer limit) {
+        return storageExecutors.read(() -> CursorPageResponses.toResponse(userService.getPage(after, limit)));
     }
 
     @PostMapping
-    public User addNew(@RequestBody User user) {
-        return userService.addNew(user);
+    public CompletableFuture<User> addNew(@RequestBody User user) {
+        return storageExecutors.write(() -> userService.addNew(user));
     }
 
     @PutMapping
-    public User change(@RequestBody User user) {
-        return userService.change(user);
+    public CompletableFuture<User> change(@RequestBody User user) {
+        return storageExecutors.write(() -> userService.change(user));
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable Long id) {
-        return userService.getUserById(id);
+    public CompletableFuture<User> getById(@PathVariable Long id) {
+        return storageExecutors.read(() -> userService.getUserById(id));
     }
 
 
     @PutMapping("/{id}/friends/{friendId}")
-    public List<User> makeFriends(@PathVariable("id") Long userId,
-                                  @PathVariable("friendId") Long newFriendId) {
-        userService.makeFriends(userId, newFriendId);
+    public CompletableFuture<List<User>> makeFriends(@PathVariable("id") Long userId,
+                                                     @PathVariable("friendId") Long newFriendId) {
+        return storageExecutors.write(() -> {
+            userService.makeFriends(userId, newFriendId);
 
-        return userService.getFriendList(userId);
+            return userService.getFriendList(userId);
+        });
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
-    public long deleteFriend(@PathVariable("id") Long userId,
-                             @PathVariable("friendId") Long newFriendId) {
-        userService.deleteFriends(userId, newFriendId);
+    public CompletableFuture<Long> deleteFriend(@PathVariable("id") Long userId,
+                                                @PathVariable("friendId") Long newFriendId) {
+        return storageExecutors.write(() -> {
+            userService.deleteFriends(userId, newFriendId);
 
-        return userId;
+            return userId;
+        });
     }
 
     @GetMapping("{id}/friends")
-    public List<User> getFriendList(@PathVariable Long id) {
-        return userService.getFriendList(id);
+    public CompletableFuture<List<User>> getFriendList(@PathVariable Long id) {
+        return storageExecutors.read(() -> userService.getFriendList(id));
+    }
+
+    @GetMapping(value = "{id}/friends", params = "limit")
+    public CompletableFuture<ResponseEntity<List<User>>> getFriendListPage(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam Integer limit) {
+        return storageExecutors.read(() ->
+                CursorPageResponses.toResponse(userService.getFriendListPage(id, after, limit)));
+    }
+
+    @GetMapping("{id}/suggestions")
+    public CompletableFuture<List<User>> getFriendSuggestions(@PathVariable Long id,
+                                                              @RequestParam(required = false) Integer count) {
+        return storageExecutors.read(() -> userService.getFriendSuggestions(id, count));
+    }
+
+    @GetMapping("{id}/recommendations")
+    public CompletableFuture<List<Film>> getRecommendations(@PathVariable Long id,
+                                                            @RequestParam(required = false) Integer count) {
+        return storageExecutors.read(() -> recommendationService.getRecommendations(id, count));
     }
 
     @GetMapping("{id}/friends/common/{otherId}")
-    public Set<User> getCommonFriendList(@PathVariable("id") Long userId,
-                                         @PathVariable("otherId") Long otherId) {
-        return userService.getCommonFriendList(userId, otherId);
+    public CompletableFuture<Set<User>> getCommonFriendList(@PathVariable("id") Long userId,
+                                                            @PathVariable("otherId") Long otherId) {
+        return storageExecutors.read(() -> userService.getCommonFriendList(userId, otherId));
     }
 
 }
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public final class RequestCallCounter {
+    private static final ThreadLocal<RequestCallCounter> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger storageCalls = new AtomicInteger();
+    private final AtomicInteger sqlStatements = new AtomicInteger();
+
+    RequestCallCounter() {
+    }
+
+    public static <T> Supplier<T> propagate(Supplier<T> action) {
+        RequestCallCounter counter = CURRENT.get();
+
+        if (counter == null) {
+            return action;
+        }
+
+        return () -> {
+            RequestCallCounter previous = CURRENT.get();
+
+            CURRENT.set(counter);
+            try {
+                return action.get();
+
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    static void bind(RequestCallCounter counter) {
+        if (counter != null) {
+            CURRENT.set(counter);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    static void recordStorageCall() {
+        RequestCallCounter counter = CURRENT.get();
+
+        if (counter != null) {
+            counter.storageCalls.incrementAndGet();
+        }
+    }
+
+    static void recordSqlStatement() {
+        RequestCallCounter counter = CURRENT.get();
+
+        if (counter != null) {
+            counter.sqlStatements.incrementAndGet();
+        }
+    }
+
+    int getStorageCalls() {
+        return storageCalls.get();
+    }
+
+    int getSqlStatements() {
+        return sqlStatements.get();
+    }
+
+}
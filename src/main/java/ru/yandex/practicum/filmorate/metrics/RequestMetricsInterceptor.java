@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Component
+@RequiredArgsConstructor
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+    static final String STORAGE_CALLS_SUMMARY = "filmorate.request.storage.calls";
+    static final String SQL_STATEMENTS_SUMMARY = "filmorate.request.sql.statements";
+    private static final String COUNTER_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".COUNTER";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestCallCounter counter = (RequestCallCounter) request.getAttribute(COUNTER_ATTRIBUTE);
+
+        if (counter == null) {
+            counter = new RequestCallCounter();
+            request.setAttribute(COUNTER_ATTRIBUTE, counter);
+        }
+
+        RequestCallCounter.bind(counter);
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        RequestCallCounter.bind(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestCallCounter.bind(null);
+
+        RequestCallCounter counter = (RequestCallCounter) request.getAttribute(COUNTER_ATTRIBUTE);
+
+        if (counter == null) {
+            return;
+        }
+
+        request.removeAttribute(COUNTER_ATTRIBUTE);
+
+        Object uriPattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = uriPattern != null ? uriPattern.toString() : "UNKNOWN";
+
+        recordSummary(STORAGE_CALLS_SUMMARY, request.getMethod(), uri, counter.getStorageCalls());
+        recordSummary(SQL_STATEMENTS_SUMMARY, request.getMethod(), uri, counter.getSqlStatements());
+    }
+
+    private void recordSummary(String name, String method, String uri, int value) {
+        DistributionSummary.builder(name)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(value);
+    }
+
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+    static final String STORAGE_TIMER = "filmorate.storage.calls";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.FilmStorage+.*(..))")
+    public Object timeFilmStorageCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timeStorageCall("FilmStorage", joinPoint);
+    }
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.UserStorage+.*(..))")
+    public Object timeUserStorageCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timeStorageCall("UserStorage", joinPoint);
+    }
+
+    private Object timeStorageCall(String storage, ProceedingJoinPoint joinPoint) throws Throwable {
+        String outcome = "success";
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        RequestCallCounter.recordStorageCall();
+
+        try {
+            return joinPoint.proceed();
+
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+
+        } finally {
+            sample.stop(Timer.builder(STORAGE_TIMER)
+                    .tag("storage", storage)
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+public class CursorPage<T> {
+    private List<T> items;
+    private Long nextCursor;
+
+    public static <T> CursorPage<T> fromSlice(List<T> slice, int limit, Function<T, Long> idGetter) {
+        if (slice.size() <= limit) {
+            return CursorPage.<T>builder().items(slice).build();
+        }
+
+        List<T> items = slice.subList(0, limit);
+
+        return CursorPage.<T>builder()
+                .items(items)
+                .nextCursor(idGetter.apply(items.get(limit - 1)))
+                .build();
+    }
+
+}
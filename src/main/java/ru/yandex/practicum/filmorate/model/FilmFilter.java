@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmFilter {
+    private Long genre;
+    private Long mpa;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedTo;
+    private Integer minDuration;
+    private Integer maxDuration;
+
+    public boolean isEmpty() {
+        return genre == null && mpa == null && releasedFrom == null && releasedTo == null &&
+                minDuration == null && maxDuration == null;
+    }
+
+}
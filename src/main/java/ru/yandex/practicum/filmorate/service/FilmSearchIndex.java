@@ -0,0 +1,425 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    static final int MIN_COMPACTION_THRESHOLD = 1024;
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private Index index;
+    private List<Film> pendingFilms;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("film-search-preload-");
+
+        threadFactory.setDaemon(true);
+        threadFactory.newThread(() -> {
+            try {
+                loadIfMissing();
+            } catch (RuntimeException e) {
+                log.error("Не удалось построить поисковый индекс при запуске: " + e.getMessage());
+            }
+        }).start();
+    }
+
+    public List<Long> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        Index current = acquireRead();
+
+        try {
+            return current.search(terms, limit, scratch.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onFilmSaved(Film film) {
+        Film snapshot = Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .build();
+
+        lock.writeLock().lock();
+
+        try {
+            if (pendingFilms != null) {
+                pendingFilms.add(snapshot);
+            }
+
+            if (index != null) {
+                index.put(snapshot);
+
+                if (index.deletedCount > Math.max(MIN_COMPACTION_THRESHOLD, index.liveCount / 5)) {
+                    index.compact();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int getDocumentSlotCount() {
+        Index current = acquireRead();
+
+        try {
+            return current.docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            pendingFilms = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = null;
+
+        try {
+            Index building = new Index();
+
+            filmStorage.streamAll(building::put);
+            rebuilt = building;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (rebuilt != null) {
+                    pendingFilms.forEach(rebuilt::put);
+                    index = rebuilt;
+                }
+
+                pendingFilms = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        log.info("Поисковый индекс фильмов построен. Фильмов: " + rebuilt.liveCount +
+                ", терминов: " + rebuilt.postings.size() +
+                ", время " + (System.nanoTime() - startNanos) / 1_000_000 + " мс");
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+
+        if (text == null) {
+            return tokens;
+        }
+
+        StringBuilder token = new StringBuilder();
+
+        for (int i = 0; i <= text.length(); i++) {
+            char symbol = i < text.length() ? text.charAt(i) : ' ';
+
+            if (Character.isLetterOrDigit(symbol)) {
+                symbol = Character.toLowerCase(symbol);
+                token.append(symbol == 'ё' ? 'е' : symbol);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+
+        return tokens;
+    }
+
+    private Index acquireRead() {
+        if (!isLoaded()) {
+            loadIfMissing();
+        }
+
+        lock.readLock().lock();
+
+        return index;
+    }
+
+    private synchronized void loadIfMissing() {
+        if (!isLoaded()) {
+            rebuild();
+        }
+    }
+
+    private boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Index {
+        private final Map<String, PostingList> postings = new HashMap<>();
+        private Map<Long, Integer> docIdsByFilmId = new HashMap<>();
+        private BitSet deleted = new BitSet();
+        private long[] filmIds = new long[1024];
+        private int[] lengths = new int[1024];
+        private int docCount;
+        private int liveCount;
+        private int deletedCount;
+        private long totalLength;
+
+        private void put(Film film) {
+            Integer previousDocId = docIdsByFilmId.get(film.getId());
+
+            if (previousDocId != null) {
+                deleted.set(previousDocId);
+                totalLength -= lengths[previousDocId];
+                liveCount--;
+                deletedCount++;
+            }
+
+            List<String> tokens = tokenize(film.getName());
+
+            tokens.addAll(tokenize(film.getDescription()));
+
+            if (docCount == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, docCount * 2);
+                lengths = Arrays.copyOf(lengths, docCount * 2);
+            }
+
+            int docId = docCount++;
+            Map<String, Integer> frequencies = new HashMap<>();
+
+            tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new PostingList()).append(docId, frequency));
+
+            filmIds[docId] = film.getId();
+            lengths[docId] = tokens.size();
+            docIdsByFilmId.put(film.getId(), docId);
+            totalLength += tokens.size();
+            liveCount++;
+        }
+
+        private void compact() {
+            int[] newDocIds = new int[docCount];
+            int capacity = Math.max(1024, liveCount);
+            long[] newFilmIds = new long[capacity];
+            int[] newLengths = new int[capacity];
+            Map<Long, Integer> newDocIdsByFilmId = new HashMap<>();
+            int newDocCount = 0;
+
+            for (int docId = 0; docId < docCount; docId++) {
+                if (deleted.get(docId)) {
+                    newDocIds[docId] = -1;
+                    continue;
+                }
+
+                newDocIds[docId] = newDocCount;
+                newFilmIds[newDocCount] = filmIds[docId];
+                newLengths[newDocCount] = lengths[docId];
+                newDocIdsByFilmId.put(filmIds[docId], newDocCount);
+                newDocCount++;
+            }
+
+            Iterator<PostingList> iterator = postings.values().iterator();
+
+            while (iterator.hasNext()) {
+                PostingList postingList = iterator.next();
+
+                postingList.renumber(newDocIds);
+                if (postingList.count == 0) {
+                    iterator.remove();
+                }
+            }
+
+            filmIds = newFilmIds;
+            lengths = newLengths;
+            docIdsByFilmId = newDocIdsByFilmId;
+            docCount = newDocCount;
+            deleted = new BitSet();
+            deletedCount = 0;
+        }
+
+        private List<Long> search(List<String> terms, int limit, Scratch scratch) {
+            if (liveCount == 0 || limit == 0) {
+                return new ArrayList<>();
+            }
+
+            double averageLength = Math.max(1.0, (double) totalLength / liveCount);
+            double[] scores = scratch.scores(docCount);
+            int[] touchedCount = new int[1];
+
+            for (String term : terms) {
+                PostingList postingList = postings.get(term);
+
+                if (postingList == null) {
+                    continue;
+                }
+
+                int documentFrequency = Math.min(postingList.count, liveCount);
+                double idf = Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+                postingList.forEach((docId, frequency) -> {
+                    if (deleted.get(docId)) {
+                        return;
+                    }
+
+                    double norm = K1 * (1 - B + B * lengths[docId] / averageLength);
+
+                    if (scores[docId] == 0) {
+                        scratch.touch(docId, touchedCount[0]++);
+                    }
+
+                    scores[docId] += idf * frequency * (K1 + 1) / (frequency + norm);
+                });
+            }
+
+            Comparator<Integer> byScore = Comparator.<Integer>comparingDouble(docId -> scores[docId])
+                    .thenComparing(Comparator.<Integer>comparingLong(docId -> filmIds[docId]).reversed());
+            PriorityQueue<Integer> top = new PriorityQueue<>(byScore);
+            int[] touched = scratch.touched;
+
+            for (int i = 0; i < touchedCount[0]; i++) {
+                if (top.size() < limit) {
+                    top.add(touched[i]);
+                } else if (byScore.compare(touched[i], top.peek()) > 0) {
+                    top.poll();
+                    top.add(touched[i]);
+                }
+            }
+
+            List<Long> foundIds = new ArrayList<>(top.size());
+
+            while (!top.isEmpty()) {
+                foundIds.add(filmIds[top.poll()]);
+            }
+            Collections.reverse(foundIds);
+
+            for (int i = 0; i < touchedCount[0]; i++) {
+                scores[touched[i]] = 0;
+            }
+
+            return foundIds;
+        }
+
+    }
+
+    private static final class PostingList {
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int lastDocId;
+
+        private void append(int docId, int frequency) {
+            writeVarInt(docId - lastDocId);
+            writeVarInt(frequency);
+            lastDocId = docId;
+            count++;
+        }
+
+        private void forEach(PostingConsumer consumer) {
+            int position = 0;
+            int docId = 0;
+
+            while (position < size) {
+                int value = 0;
+                int shift = 0;
+                byte current;
+
+                do {
+                    current = data[position++];
+                    value |= (current & 0x7F) << shift;
+                    shift += 7;
+                } while (current < 0);
+                docId += value;
+
+                int frequency = 0;
+
+                shift = 0;
+                do {
+                    current = data[position++];
+                    frequency |= (current & 0x7F) << shift;
+                    shift += 7;
+                } while (current < 0);
+
+                consumer.accept(docId, frequency);
+            }
+        }
+
+        private void renumber(int[] newDocIds) {
+            PostingList kept = new PostingList();
+
+            forEach((docId, frequency) -> {
+                if (newDocIds[docId] >= 0) {
+                    kept.append(newDocIds[docId], frequency);
+                }
+            });
+
+            data = kept.data;
+            size = kept.size;
+            count = kept.count;
+            lastDocId = kept.lastDocId;
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + 5, data.length * 2));
+            }
+
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            data[size++] = (byte) value;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface PostingConsumer {
+        void accept(int docId, int frequency);
+    }
+
+    private static final class Scratch {
+        private double[] scores = new double[0];
+        private int[] touched = new int[1024];
+
+        private double[] scores(int size) {
+            if (scores.length < size) {
+                scores = new double[Math.max(size, scores.length * 2)];
+            } else if (scores.length > Math.max(1024, size * 4)) {
+                scores = new double[size];
+            }
+
+            return scores;
+        }
+
+        private void touch(int docId, int position) {
+            if (position == touched.length) {
+                touched = Arrays.copyOf(touched, touched.length * 2);
+            }
+
+            touched[position] = docId;
+        }
+
+    }
+
+}
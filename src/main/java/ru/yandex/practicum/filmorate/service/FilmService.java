@@ -1,32 +1,89 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.comparator.FilmComparators;
 import ru.yandex.practicum.filmorate.exception.FilmServiceException;
 import ru.yandex.practicum.filmorate.exception.FilmStorageException;
 import ru.yandex.practicum.filmorate.exception.FilmValidationException;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class FilmService {
-    @Qualifier("UserDbStorage") private final UserStorage userStorage;
-    @Qualifier("FilmDbStorage") private final FilmStorage filmStorage;
+    static final int DEFAULT_SEARCH_LIMIT = 10;
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final LikeWriteBuffer likeWriteBuffer;
+    @Value("${filmorate.batch.chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    @PostConstruct
+    public void checkBatchChunkSize() {
+        if (batchChunkSize < 1) {
+            throw new FilmServiceException("Размер пакета filmorate.batch.chunk-size должен быть больше нуля: " +
+                    batchChunkSize);
+        }
+    }
 
     public List<Film> getAll() {
         return filmStorage.getAll();
     }
 
+    public CursorPage<Film> getPage(Long afterId, Integer limit) throws FilmValidationException {
+        if (limit == null || limit < 1) {
+            throw new FilmValidationException("Размер страницы должен быть положительным");
+        }
+
+        List<Film> films = filmStorage.getPage(afterId != null ? afterId : 0L, limit + 1);
+
+        return CursorPage.fromSlice(films, limit, Film::getId);
+    }
+
+    public List<Film> findByFilter(FilmFilter filter) throws FilmValidationException {
+        filterValidations(filter);
+
+        return filmStorage.findByFilter(filter, 0L, Integer.MAX_VALUE);
+    }
+
+    public CursorPage<Film> getPage(Long afterId, Integer limit, FilmFilter filter) throws FilmValidationException {
+        if (filter.isEmpty()) {
+            return getPage(afterId, limit);
+        }
+
+        if (limit == null || limit < 1) {
+            throw new FilmValidationException("Размер страницы должен быть положительным");
+        }
+
+        filterValidations(filter);
+
+        List<Film> films = filmStorage.findByFilter(filter, afterId != null ? afterId : 0L, limit + 1);
+
+        return CursorPage.fromSlice(films, limit, Film::getId);
+    }
+
+    public void exportAll(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
     public List<Genre> getAllGenres() {
         return filmStorage.getAllGenres();
     }
@@ -37,17 +94,116 @@ public class FilmService {
 
 
     public Film addNew(Film film) throws FilmValidationException, FilmStorageException {
-        return filmStorage.addNew(film);
+        Film addedFilm = filmStorage.addNew(film);
+
+        searchIndex.onFilmSaved(addedFilm);
+
+        return addedFilm;
+    }
+
+    public List<BatchItemResult> addNewBatch(List<Film> films) {
+        List<BatchItemResult> results = new ArrayList<>();
+
+        for (int chunkStart = 0; chunkStart < films.size(); chunkStart += batchChunkSize) {
+            List<Film> chunk = films.subList(chunkStart, Math.min(chunkStart + batchChunkSize, films.size()));
+            int chunkOffset = chunkStart;
+
+            filmStorage.addNewBatch(chunk).forEach(result -> {
+                if (result.getId() != null) {
+                    searchIndex.onFilmSaved(chunk.get(result.getIndex()));
+                }
+
+                result.setIndex(result.getIndex() + chunkOffset);
+                results.add(result);
+            });
+        }
+
+        return results;
+    }
+
+    public List<BatchItemResult> applyLikeEvents(List<LikeEvent> events) {
+        List<BatchItemResult> results = new ArrayList<>();
+
+        for (int chunkStart = 0; chunkStart < events.size(); chunkStart += batchChunkSize) {
+            List<LikeEvent> chunk = events.subList(chunkStart, Math.min(chunkStart + batchChunkSize, events.size()));
+            Set<Long> filmIds = new HashSet<>();
+            Set<Long> userIds = new HashSet<>();
+
+            chunk.forEach(event -> {
+                filmIds.add(event.getFilmId());
+                userIds.add(event.getUserId());
+            });
+            filmIds.remove(null);
+            userIds.remove(null);
+
+            Set<Long> existingFilmIds = filmStorage.getExistingFilmIds(filmIds);
+            Set<Long> existingUserIds = userStorage.getExistingUserIds(userIds);
+            List<LikeEvent> validEvents = new ArrayList<>();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                LikeEvent event = chunk.get(i);
+                BatchItemResult.BatchItemResultBuilder result = BatchItemResult.builder().index(chunkStart + i);
+
+                if (!existingFilmIds.contains(event.getFilmId())) {
+                    result.error("Фильм с ID " + event.getFilmId() + " не найден.");
+                } else if (!existingUserIds.contains(event.getUserId())) {
+                    result.error("Пользователь с ID " + event.getUserId() + " не найден.");
+                } else if (event.getOperation() == null) {
+                    result.error("Не указана операция");
+                } else {
+                    result.id(event.getFilmId());
+                    validEvents.add(event);
+                }
+
+                results.add(result.build());
+            }
+
+            if (!validEvents.isEmpty()) {
+                likeWriteBuffer.applyAll(validEvents);
+                validEvents.forEach(similarityIndex::apply);
+            }
+        }
+
+        return results;
     }
 
     public Film change(Film film) throws FilmValidationException, FilmStorageException {
-        return filmStorage.change(film);
+        Film changedFilm = filmStorage.change(film);
+
+        searchIndex.onFilmSaved(changedFilm);
+
+        return changedFilm;
+    }
+
+    public List<Film> search(String query, Integer limit) throws FilmValidationException {
+        if (query == null || FilmSearchIndex.tokenize(query).isEmpty()) {
+            throw new FilmValidationException("Поисковый запрос не может быть пустым");
+        }
+
+        if (limit != null && limit < 0) {
+            throw new FilmValidationException("Количество фильмов не может быть отрицательным");
+        }
+
+        List<Film> films = new ArrayList<>();
+
+        searchIndex.search(query, limit != null ? limit : DEFAULT_SEARCH_LIMIT)
+                .forEach(filmId -> films.add(filmStorage.getFilmById(filmId)));
+
+        return films;
     }
 
     public Film getFilmById(Long id) throws RecordNotFoundException {
         return filmStorage.getFilmById(id);
     }
 
+    public String getFilmVersion(Long id) {
+        return filmStorage.getFilmVersion(id);
+    }
+
+    public String getReferenceDataVersion() {
+        return filmStorage.getReferenceDataVersion();
+    }
+
     public Genre getGenreById(Long id) throws RecordNotFoundException {
         return filmStorage.getGenreById(id);
     }
@@ -59,20 +215,38 @@ public class FilmService {
     public void likeFilmByUser(Long filmId, Long userId) throws RecordNotFoundException {
         userStorage.getUserById(userId);
         filmStorage.getFilmById(filmId);
-        filmStorage.createLikeFilmByUser(filmId, userId);
-
+        likeWriteBuffer.like(filmId, userId);
+        similarityIndex.onLike(filmId, userId);
     }
 
     public void unlikeFilmByUser(Long filmId, Long userId) throws RecordNotFoundException {
         userStorage.getUserById(userId);
         filmStorage.getFilmById(filmId);
-        filmStorage.deleteLikeFilmByUser(filmId, userId);
+        likeWriteBuffer.unlike(filmId, userId);
+        similarityIndex.onUnlike(filmId, userId);
     }
 
     public int getFilmLikeCount(Long filmId) throws RecordNotFoundException {
         filmStorage.getFilmById(filmId);
 
-        return filmStorage.getFilmLikeStorageCount(filmId);
+        return likeWriteBuffer.getLikeCount(filmId);
+    }
+
+    private void filterValidations(FilmFilter filter) throws FilmValidationException {
+        if (filter.getReleasedFrom() != null && filter.getReleasedTo() != null &&
+                filter.getReleasedFrom().isAfter(filter.getReleasedTo())) {
+            throw new FilmValidationException("Начало периода релиза не может быть позже его окончания");
+        }
+
+        if ((filter.getMinDuration() != null && filter.getMinDuration() < 0) ||
+                (filter.getMaxDuration() != null && filter.getMaxDuration() < 0)) {
+            throw new FilmValidationException("Продолжительность фильма не может быть отрицательной");
+        }
+
+        if (filter.getMinDuration() != null && filter.getMaxDuration() != null &&
+                filter.getMinDuration() > filter.getMaxDuration()) {
+            throw new FilmValidationException("Минимальная продолжительность не может быть больше максимальной");
+        }
     }
 
     public List<Film> topLikes(Integer count) throws FilmServiceException {
@@ -82,14 +256,7 @@ public class FilmService {
             }
         }
 
-        List<Film> likedFilms = filmStorage.getAll().stream()
-                .sorted(FilmComparators.getComparatorByFilmLikes(this)).collect(Collectors.toList());
-
-        if (count == null || count > likedFilms.size()) {
-            return likedFilms;
-        }
-
-        return likedFilms.subList(0, count);
+        return filmStorage.getPopular(count);
     }
 
 }
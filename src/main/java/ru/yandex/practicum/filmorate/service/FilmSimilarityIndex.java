@@ -0,0 +1,549 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSimilarityIndex {
+    static final int PARTITION_SIZE = 256;
+
+    private final FilmStorage filmStorage;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private Index index;
+    private List<LikeEvent> pendingEvents;
+
+    public List<Long> getSimilarFilmIds(Long filmId, int count) {
+        Index current = acquireRead();
+
+        try {
+            return current.similar(filmId, count, scratch.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> getRecommendedFilmIds(Long userId, int count) {
+        Index current = acquireRead();
+
+        try {
+            return current.recommend(userId, count, scratch.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void apply(LikeEvent event) {
+        lock.writeLock().lock();
+
+        try {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+
+            if (index != null) {
+                index.apply(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onLike(Long filmId, Long userId) {
+        apply(LikeEvent.builder().filmId(filmId).userId(userId).operation(LikeOperation.LIKE).build());
+    }
+
+    public void onUnlike(Long filmId, Long userId) {
+        apply(LikeEvent.builder().filmId(filmId).userId(userId).operation(LikeOperation.UNLIKE).build());
+    }
+
+    public void refresh() {
+        if (isLoaded()) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = null;
+
+        try {
+            likeWriteBuffer.flush();
+            rebuilt = build(filmStorage.getAllLikeLists());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (rebuilt != null) {
+                    pendingEvents.forEach(rebuilt::apply);
+                    index = rebuilt;
+                }
+
+                pendingEvents = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        log.info("Индекс похожих фильмов построен. Фильмов: " + rebuilt.films.size + ", пар: " + rebuilt.pairCount +
+                ", время " + (System.nanoTime() - startNanos) / 1_000_000 + " мс");
+    }
+
+    private Index acquireRead() {
+        if (!isLoaded()) {
+            loadIfMissing();
+        }
+
+        lock.readLock().lock();
+
+        return index;
+    }
+
+    private synchronized void loadIfMissing() {
+        if (!isLoaded()) {
+            rebuild();
+        }
+    }
+
+    private boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Index build(Map<Long, Set<Long>> likeLists) {
+        long[] filmIds = new long[likeLists.size()];
+        int userIdCount = 0;
+        int i = 0;
+
+        for (Map.Entry<Long, Set<Long>> entry : likeLists.entrySet()) {
+            filmIds[i++] = entry.getKey();
+            userIdCount += entry.getValue().size();
+        }
+
+        long[] userIds = new long[userIdCount];
+        int j = 0;
+
+        for (Set<Long> likers : likeLists.values()) {
+            for (Long userId : likers) {
+                userIds[j++] = userId;
+            }
+        }
+
+        Index built = new Index(IdTable.of(filmIds), IdTable.of(userIds));
+        int[] userFilmCounts = new int[built.users.size];
+
+        for (int film = 0; film < built.films.size; film++) {
+            Set<Long> likers = likeLists.get(built.films.ids[film]);
+            int[] row = new int[likers.size()];
+            int k = 0;
+
+            for (Long userId : likers) {
+                row[k] = built.users.indexOf(userId);
+                userFilmCounts[row[k++]]++;
+            }
+
+            Arrays.sort(row);
+            built.likersByFilm[film] = row;
+        }
+
+        for (int user = 0; user < built.users.size; user++) {
+            built.filmsByUser[user] = new int[userFilmCounts[user]];
+            userFilmCounts[user] = 0;
+        }
+
+        for (int film = 0; film < built.films.size; film++) {
+            for (int user : built.likersByFilm[film]) {
+                built.filmsByUser[user][userFilmCounts[user]++] = film;
+            }
+        }
+
+        ForkJoinPool.commonPool().invoke(new CoLikeTask(built, 0, built.films.size, scratch));
+
+        for (int film = 0; film < built.films.size; film++) {
+            built.pairCount += built.coLikeFilms[film].length;
+        }
+
+        return built;
+    }
+
+    private static double cosine(int commonLikes, int firstLikes, int secondLikes) {
+        return commonLikes / Math.sqrt((double) firstLikes * secondLikes);
+    }
+
+    private static int[] insert(int[] row, int position, int value) {
+        int[] newRow = new int[row.length + 1];
+
+        System.arraycopy(row, 0, newRow, 0, position);
+        newRow[position] = value;
+        System.arraycopy(row, position, newRow, position + 1, row.length - position);
+
+        return newRow;
+    }
+
+    private static int[] remove(int[] row, int position) {
+        int[] newRow = new int[row.length - 1];
+
+        System.arraycopy(row, 0, newRow, 0, position);
+        System.arraycopy(row, position + 1, newRow, position, newRow.length - position);
+
+        return newRow;
+    }
+
+    private static final class IdTable {
+        private long[] ids;
+        private int size;
+        private final int snapshotSize;
+        private final Map<Long, Integer> appendedIndices = new HashMap<>();
+
+        private IdTable(long[] ids) {
+            this.ids = ids;
+            this.size = ids.length;
+            this.snapshotSize = ids.length;
+        }
+
+        private static IdTable of(long[] ids) {
+            long[] sortedIds = ids.clone();
+            int idCount = 0;
+
+            Arrays.sort(sortedIds);
+
+            for (int i = 0; i < sortedIds.length; i++) {
+                if (i == 0 || sortedIds[i] != sortedIds[i - 1]) {
+                    sortedIds[idCount++] = sortedIds[i];
+                }
+            }
+
+            return new IdTable(Arrays.copyOf(sortedIds, idCount));
+        }
+
+        private int indexOf(long id) {
+            int index = Arrays.binarySearch(ids, 0, snapshotSize, id);
+
+            if (index >= 0) {
+                return index;
+            }
+
+            return appendedIndices.getOrDefault(id, -1);
+        }
+
+        private int indexOrAppend(long id) {
+            int index = indexOf(id);
+
+            if (index >= 0) {
+                return index;
+            }
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+            }
+
+            ids[size] = id;
+            appendedIndices.put(id, size);
+
+            return size++;
+        }
+
+    }
+
+    private static final class Index {
+        private static final int[] EMPTY_ROW = new int[0];
+
+        private final IdTable films;
+        private final IdTable users;
+        private int[][] likersByFilm;
+        private int[][] filmsByUser;
+        private int[][] coLikeFilms;
+        private int[][] coLikeCounts;
+        private long pairCount;
+
+        private Index(IdTable films, IdTable users) {
+            this.films = films;
+            this.users = users;
+            this.likersByFilm = new int[films.size][];
+            this.filmsByUser = new int[users.size][];
+            this.coLikeFilms = new int[films.size][];
+            this.coLikeCounts = new int[films.size][];
+        }
+
+        private int likeCount(int film) {
+            return likersByFilm[film].length;
+        }
+
+        private List<Long> similar(long filmId, int count, Scratch scratch) {
+            int film = films.indexOf(filmId);
+
+            if (film < 0) {
+                return new ArrayList<>();
+            }
+
+            double[] scores = scratch.scores(films.size);
+            int[] otherFilms = coLikeFilms[film];
+            int[] commonLikes = coLikeCounts[film];
+            int filmLikes = likeCount(film);
+
+            for (int i = 0; i < otherFilms.length; i++) {
+                scores[otherFilms[i]] = cosine(commonLikes[i], filmLikes, likeCount(otherFilms[i]));
+            }
+
+            return topScored(otherFilms, otherFilms.length, scores, count);
+        }
+
+        private List<Long> recommend(long userId, int count, Scratch scratch) {
+            int user = users.indexOf(userId);
+
+            if (user < 0) {
+                return new ArrayList<>();
+            }
+
+            double[] scores = scratch.scores(films.size);
+            int[] likedFilms = filmsByUser[user];
+            int touchedCount = 0;
+
+            for (int likedFilm : likedFilms) {
+                int[] otherFilms = coLikeFilms[likedFilm];
+                int[] commonLikes = coLikeCounts[likedFilm];
+                int filmLikes = likeCount(likedFilm);
+
+                for (int i = 0; i < otherFilms.length; i++) {
+                    int otherFilm = otherFilms[i];
+
+                    if (Arrays.binarySearch(likedFilms, otherFilm) >= 0) {
+                        continue;
+                    }
+
+                    if (scores[otherFilm] == 0) {
+                        touchedCount = scratch.touch(touchedCount, otherFilm);
+                    }
+
+                    scores[otherFilm] += cosine(commonLikes[i], filmLikes, likeCount(otherFilm));
+                }
+            }
+
+            return topScored(scratch.touched, touchedCount, scores, count);
+        }
+
+        private List<Long> topScored(int[] candidates, int candidateCount, double[] scores, int count) {
+            Comparator<Integer> byScore = Comparator.<Integer>comparingDouble(film -> scores[film])
+                    .thenComparing(Comparator.<Integer>comparingLong(film -> films.ids[film]).reversed());
+            PriorityQueue<Integer> top = new PriorityQueue<>(byScore);
+
+            for (int i = 0; i < candidateCount; i++) {
+                top.add(candidates[i]);
+
+                if (top.size() > count) {
+                    top.poll();
+                }
+            }
+
+            List<Long> filmIds = new ArrayList<>(top.size());
+
+            while (!top.isEmpty()) {
+                filmIds.add(films.ids[top.poll()]);
+            }
+            Collections.reverse(filmIds);
+
+            for (int i = 0; i < candidateCount; i++) {
+                scores[candidates[i]] = 0;
+            }
+
+            return filmIds;
+        }
+
+        private void apply(LikeEvent event) {
+            if (event.getOperation() == LikeOperation.UNLIKE) {
+                int film = films.indexOf(event.getFilmId());
+                int user = users.indexOf(event.getUserId());
+
+                if (film < 0 || user < 0) {
+                    return;
+                }
+
+                int likerPosition = Arrays.binarySearch(likersByFilm[film], user);
+
+                if (likerPosition < 0) {
+                    return;
+                }
+
+                likersByFilm[film] = remove(likersByFilm[film], likerPosition);
+                filmsByUser[user] = remove(filmsByUser[user], Arrays.binarySearch(filmsByUser[user], film));
+
+                for (int otherFilm : filmsByUser[user]) {
+                    changeCoLikes(film, otherFilm, -1);
+                    changeCoLikes(otherFilm, film, -1);
+                }
+            } else {
+                int film = films.indexOrAppend(event.getFilmId());
+                int user = users.indexOrAppend(event.getUserId());
+
+                ensureCapacity();
+
+                int likerPosition = Arrays.binarySearch(likersByFilm[film], user);
+
+                if (likerPosition >= 0) {
+                    return;
+                }
+
+                likersByFilm[film] = insert(likersByFilm[film], -likerPosition - 1, user);
+
+                for (int otherFilm : filmsByUser[user]) {
+                    changeCoLikes(film, otherFilm, 1);
+                    changeCoLikes(otherFilm, film, 1);
+                }
+
+                filmsByUser[user] = insert(filmsByUser[user], -Arrays.binarySearch(filmsByUser[user], film) - 1, film);
+            }
+        }
+
+        private void ensureCapacity() {
+            if (films.size > likersByFilm.length) {
+                int capacity = Math.max(16, likersByFilm.length * 2);
+                int oldCapacity = likersByFilm.length;
+
+                likersByFilm = Arrays.copyOf(likersByFilm, capacity);
+                coLikeFilms = Arrays.copyOf(coLikeFilms, capacity);
+                coLikeCounts = Arrays.copyOf(coLikeCounts, capacity);
+                Arrays.fill(likersByFilm, oldCapacity, capacity, EMPTY_ROW);
+                Arrays.fill(coLikeFilms, oldCapacity, capacity, EMPTY_ROW);
+                Arrays.fill(coLikeCounts, oldCapacity, capacity, EMPTY_ROW);
+            }
+
+            if (users.size > filmsByUser.length) {
+                int capacity = Math.max(16, filmsByUser.length * 2);
+                int oldCapacity = filmsByUser.length;
+
+                filmsByUser = Arrays.copyOf(filmsByUser, capacity);
+                Arrays.fill(filmsByUser, oldCapacity, capacity, EMPTY_ROW);
+            }
+        }
+
+        private void changeCoLikes(int film, int otherFilm, int delta) {
+            int[] otherFilms = coLikeFilms[film];
+            int position = Arrays.binarySearch(otherFilms, otherFilm);
+
+            if (position < 0) {
+                coLikeFilms[film] = insert(otherFilms, -position - 1, otherFilm);
+                coLikeCounts[film] = insert(coLikeCounts[film], -position - 1, delta);
+                pairCount++;
+            } else if (coLikeCounts[film][position] + delta == 0) {
+                coLikeFilms[film] = remove(otherFilms, position);
+                coLikeCounts[film] = remove(coLikeCounts[film], position);
+                pairCount--;
+            } else {
+                coLikeCounts[film][position] += delta;
+            }
+        }
+
+    }
+
+    private static final class CoLikeTask extends RecursiveAction {
+        private final Index index;
+        private final int from;
+        private final int to;
+        private final ThreadLocal<Scratch> scratch;
+
+        private CoLikeTask(Index index, int from, int to, ThreadLocal<Scratch> scratch) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.scratch = scratch;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARTITION_SIZE) {
+                Scratch threadScratch = scratch.get();
+                int[] counts = threadScratch.counts(index.films.size);
+
+                for (int film = from; film < to; film++) {
+                    int touchedCount = 0;
+
+                    for (int user : index.likersByFilm[film]) {
+                        for (int otherFilm : index.filmsByUser[user]) {
+                            if (otherFilm != film && counts[otherFilm]++ == 0) {
+                                touchedCount = threadScratch.touch(touchedCount, otherFilm);
+                            }
+                        }
+                    }
+
+                    int[] otherFilms = Arrays.copyOf(threadScratch.touched, touchedCount);
+                    int[] commonLikes = new int[touchedCount];
+
+                    Arrays.sort(otherFilms);
+
+                    for (int i = 0; i < touchedCount; i++) {
+                        commonLikes[i] = counts[otherFilms[i]];
+                        counts[otherFilms[i]] = 0;
+                    }
+
+                    index.coLikeFilms[film] = otherFilms;
+                    index.coLikeCounts[film] = commonLikes;
+                }
+
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+
+            invokeAll(new CoLikeTask(index, from, middle, scratch), new CoLikeTask(index, middle, to, scratch));
+        }
+
+    }
+
+    private static final class Scratch {
+        private int[] counts = new int[0];
+        private double[] scores = new double[0];
+        private int[] touched = new int[1024];
+
+        private int[] counts(int size) {
+            if (counts.length < size) {
+                counts = new int[Math.max(size, counts.length * 2)];
+            }
+
+            return counts;
+        }
+
+        private double[] scores(int size) {
+            if (scores.length < size) {
+                scores = new double[Math.max(size, scores.length * 2)];
+            }
+
+            return scores;
+        }
+
+        private int touch(int touchedCount, int film) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touched.length * 2);
+            }
+
+            touched[touchedCount] = film;
+
+            return touchedCount + 1;
+        }
+
+    }
+
+}
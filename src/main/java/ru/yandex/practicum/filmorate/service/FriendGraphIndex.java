@@ -0,0 +1,395 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraphIndex {
+    static final int MIN_COMPACTION_THRESHOLD = 1024;
+
+    private final UserStorage userStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private Graph graph;
+    private List<long[]> pendingChanges;
+
+    public List<Long> getSuggestedUserIds(Long userId, int count) {
+        Graph current = acquireRead();
+
+        try {
+            return current.suggest(userId, count, scratch.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onFriendAdded(Long userId, Long friendId) {
+        apply(new long[]{userId, friendId, 1});
+    }
+
+    public void onFriendRemoved(Long userId, Long friendId) {
+        apply(new long[]{userId, friendId, 0});
+    }
+
+    public synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Graph rebuilt = null;
+
+        try {
+            EdgeList edges = new EdgeList();
+
+            userStorage.streamFriendships(edges::add);
+            rebuilt = Graph.of(edges);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (rebuilt != null) {
+                    pendingChanges.forEach(rebuilt::apply);
+                    graph = rebuilt;
+                }
+
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        log.info("Граф друзей построен. Пользователей: " + rebuilt.size + ", связей: " + rebuilt.edgeCount +
+                ", время " + (System.nanoTime() - startNanos) / 1_000_000 + " мс");
+    }
+
+    private void apply(long[] change) {
+        lock.writeLock().lock();
+
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+
+            if (graph != null) {
+                graph.apply(change);
+
+                if (graph.changeCount > Math.max(MIN_COMPACTION_THRESHOLD, graph.targets.length / 8)) {
+                    graph = Graph.of(graph.toEdgeList());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Graph acquireRead() {
+        if (!isLoaded()) {
+            loadIfMissing();
+        }
+
+        lock.readLock().lock();
+
+        return graph;
+    }
+
+    private synchronized void loadIfMissing() {
+        if (!isLoaded()) {
+            rebuild();
+        }
+    }
+
+    private boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return graph != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Graph {
+        private long[] ids;
+        private int size;
+        private final int snapshotSize;
+        private final int[] offsets;
+        private final int[] targets;
+        private final Map<Long, Integer> appendedIndices = new HashMap<>();
+        private final Map<Integer, int[]> changedRows = new HashMap<>();
+        private long edgeCount;
+        private int changeCount;
+
+        private Graph(long[] ids, int[] offsets, int[] targets) {
+            this.ids = ids;
+            this.size = ids.length;
+            this.snapshotSize = ids.length;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.edgeCount = targets.length;
+        }
+
+        private static Graph of(EdgeList edges) {
+            long[] ids = new long[edges.size * 2];
+            int idCount = 0;
+
+            System.arraycopy(edges.from, 0, ids, 0, edges.size);
+            System.arraycopy(edges.to, 0, ids, edges.size, edges.size);
+            Arrays.sort(ids);
+
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[idCount++] = ids[i];
+                }
+            }
+
+            ids = Arrays.copyOf(ids, idCount);
+
+            int[] offsets = new int[idCount + 1];
+            int[] fromIndices = new int[edges.size];
+
+            for (int i = 0; i < edges.size; i++) {
+                fromIndices[i] = Arrays.binarySearch(ids, edges.from[i]);
+                offsets[fromIndices[i] + 1]++;
+            }
+
+            for (int i = 0; i < idCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            int[] targets = new int[edges.size];
+            int[] positions = Arrays.copyOf(offsets, idCount);
+
+            for (int i = 0; i < edges.size; i++) {
+                targets[positions[fromIndices[i]]++] = Arrays.binarySearch(ids, edges.to[i]);
+            }
+
+            int edgeCount = 0;
+
+            for (int i = 0; i < idCount; i++) {
+                int rowStart = edgeCount;
+
+                Arrays.sort(targets, offsets[i], offsets[i + 1]);
+                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                    if (j == offsets[i] || targets[j] != targets[j - 1]) {
+                        targets[edgeCount++] = targets[j];
+                    }
+                }
+                offsets[i] = rowStart;
+            }
+            offsets[idCount] = edgeCount;
+
+            return new Graph(ids, offsets, Arrays.copyOf(targets, edgeCount));
+        }
+
+        private EdgeList toEdgeList() {
+            EdgeList edges = new EdgeList();
+
+            for (int user = 0; user < size; user++) {
+                long userId = ids[user];
+
+                forEachFriend(user, friend -> edges.add(userId, ids[friend]));
+            }
+
+            return edges;
+        }
+
+        private int indexOf(long id) {
+            int index = Arrays.binarySearch(ids, 0, snapshotSize, id);
+
+            if (index >= 0) {
+                return index;
+            }
+
+            return appendedIndices.getOrDefault(id, -1);
+        }
+
+        private int indexOrAppend(long id) {
+            int index = indexOf(id);
+
+            if (index >= 0) {
+                return index;
+            }
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+            }
+
+            ids[size] = id;
+            appendedIndices.put(id, size);
+
+            return size++;
+        }
+
+        private int[] row(int user) {
+            int[] changedRow = changedRows.get(user);
+
+            if (changedRow != null) {
+                return changedRow;
+            }
+
+            return user < snapshotSize ? Arrays.copyOfRange(targets, offsets[user], offsets[user + 1]) : new int[0];
+        }
+
+        private void forEachFriend(int user, IntConsumer consumer) {
+            int[] changedRow = changedRows.get(user);
+
+            if (changedRow != null) {
+                for (int friend : changedRow) {
+                    consumer.accept(friend);
+                }
+            } else if (user < snapshotSize) {
+                for (int i = offsets[user]; i < offsets[user + 1]; i++) {
+                    consumer.accept(targets[i]);
+                }
+            }
+        }
+
+        private boolean hasFriend(int user, int friend) {
+            int[] changedRow = changedRows.get(user);
+
+            if (changedRow != null) {
+                return Arrays.binarySearch(changedRow, friend) >= 0;
+            }
+
+            return user < snapshotSize && Arrays.binarySearch(targets, offsets[user], offsets[user + 1], friend) >= 0;
+        }
+
+        private void apply(long[] change) {
+            if (change[2] == 1) {
+                int user = indexOrAppend(change[0]);
+                int friend = indexOrAppend(change[1]);
+                int[] currentRow = row(user);
+                int position = Arrays.binarySearch(currentRow, friend);
+
+                if (position < 0) {
+                    int insertAt = -position - 1;
+                    int[] newRow = new int[currentRow.length + 1];
+
+                    System.arraycopy(currentRow, 0, newRow, 0, insertAt);
+                    newRow[insertAt] = friend;
+                    System.arraycopy(currentRow, insertAt, newRow, insertAt + 1, currentRow.length - insertAt);
+                    changedRows.put(user, newRow);
+                    edgeCount++;
+                    changeCount++;
+                }
+            } else {
+                int user = indexOf(change[0]);
+                int friend = indexOf(change[1]);
+
+                if (user < 0 || friend < 0) {
+                    return;
+                }
+
+                int[] currentRow = row(user);
+                int position = Arrays.binarySearch(currentRow, friend);
+
+                if (position >= 0) {
+                    int[] newRow = new int[currentRow.length - 1];
+
+                    System.arraycopy(currentRow, 0, newRow, 0, position);
+                    System.arraycopy(currentRow, position + 1, newRow, position, newRow.length - position);
+                    changedRows.put(user, newRow);
+                    edgeCount--;
+                    changeCount++;
+                }
+            }
+        }
+
+        private List<Long> suggest(long userId, int count, Scratch scratch) {
+            int user = indexOf(userId);
+
+            if (user < 0 || count == 0) {
+                return new ArrayList<>();
+            }
+
+            int[] mutualCounts = scratch.mutualCounts(size);
+            int[] touchedCount = new int[1];
+
+            forEachFriend(user, friend -> forEachFriend(friend, candidate -> {
+                if (candidate != user && mutualCounts[candidate]++ == 0) {
+                    if (touchedCount[0] == scratch.touched.length) {
+                        scratch.touched = Arrays.copyOf(scratch.touched, scratch.touched.length * 2);
+                    }
+
+                    scratch.touched[touchedCount[0]++] = candidate;
+                }
+            }));
+
+            Comparator<Integer> byMutualCount = Comparator.<Integer>comparingInt(candidate -> mutualCounts[candidate])
+                    .thenComparing(Comparator.<Integer>comparingLong(candidate -> ids[candidate]).reversed());
+            PriorityQueue<Integer> top = new PriorityQueue<>(byMutualCount);
+
+            int[] touched = scratch.touched;
+
+            for (int i = 0; i < touchedCount[0]; i++) {
+                int candidate = touched[i];
+
+                if (!hasFriend(user, candidate)) {
+                    top.add(candidate);
+
+                    if (top.size() > count) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Long> suggestedIds = new ArrayList<>(top.size());
+
+            while (!top.isEmpty()) {
+                suggestedIds.add(ids[top.poll()]);
+            }
+            Collections.reverse(suggestedIds);
+
+            for (int i = 0; i < touchedCount[0]; i++) {
+                mutualCounts[touched[i]] = 0;
+            }
+
+            return suggestedIds;
+        }
+
+    }
+
+    private static final class EdgeList {
+        private long[] from = new long[1024];
+        private long[] to = new long[1024];
+        private int size;
+
+        private void add(long userId, long friendId) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+
+            from[size] = userId;
+            to[size++] = friendId;
+        }
+
+    }
+
+    private static final class Scratch {
+        private int[] mutualCounts = new int[0];
+        private int[] touched = new int[1024];
+
+        private int[] mutualCounts(int size) {
+            if (mutualCounts.length < size) {
+                mutualCounts = new int[Math.max(size, mutualCounts.length * 2)];
+            }
+
+            return mutualCounts;
+        }
+
+    }
+
+}
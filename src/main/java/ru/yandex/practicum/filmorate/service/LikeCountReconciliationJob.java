@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeCountReconciliationJob {
+    private final FilmStorage filmStorage;
+    private final FilmSimilarityIndex similarityIndex;
+    private final LikeWriteBuffer likeWriteBuffer;
+
+    @Scheduled(initialDelayString = "${filmorate.like-count.reconciliation-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.like-count.reconciliation-interval-ms:3600000}")
+    public void reconcile() {
+        likeWriteBuffer.flush();
+
+        int correctedFilms = filmStorage.rebuildLikeCounts();
+
+        if (correctedFilms > 0) {
+            log.warn("Обнаружено расхождение счетчиков лайков. Исправлено фильмов: " + correctedFilms);
+        }
+
+        similarityIndex.refresh();
+    }
+
+}
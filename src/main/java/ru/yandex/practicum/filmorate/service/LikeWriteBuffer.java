@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class LikeWriteBuffer implements MeterBinder, DisposableBean {
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final int flushSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Pending pending = new Pending();
+    private Pending flushing;
+
+    public LikeWriteBuffer(FilmStorage filmStorage,
+                           @Value("${filmorate.like-buffer.enabled:false}") boolean enabled,
+                           @Value("${filmorate.like-buffer.flush-size:500}") int flushSize) {
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+    }
+
+    public void like(Long filmId, Long userId) {
+        if (!enabled) {
+            filmStorage.createLikeFilmByUser(filmId, userId);
+            return;
+        }
+
+        add(List.of(LikeEvent.builder().filmId(filmId).userId(userId).operation(LikeOperation.LIKE).build()));
+    }
+
+    public void unlike(Long filmId, Long userId) {
+        if (!enabled) {
+            filmStorage.deleteLikeFilmByUser(filmId, userId);
+            return;
+        }
+
+        add(List.of(LikeEvent.builder().filmId(filmId).userId(userId).operation(LikeOperation.UNLIKE).build()));
+    }
+
+    public void applyAll(List<LikeEvent> events) {
+        if (!enabled) {
+            filmStorage.applyLikeEvents(events);
+            return;
+        }
+
+        add(events);
+    }
+
+    public Set<Long> getLikeList(Long filmId) {
+        Pending flushingSnapshot;
+        Pending pendingSnapshot;
+
+        lock.readLock().lock();
+        try {
+            flushingSnapshot = flushing;
+            pendingSnapshot = pending;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<Long> likeList = new HashSet<>(filmStorage.getLikeListForFilm(filmId));
+
+        if (flushingSnapshot != null) {
+            flushingSnapshot.applyTo(filmId, likeList);
+        }
+
+        pendingSnapshot.applyTo(filmId, likeList);
+
+        return likeList;
+    }
+
+    public int getLikeCount(Long filmId) {
+        if (!hasPending(filmId)) {
+            return filmStorage.getFilmLikeStorageCount(filmId);
+        }
+
+        return getLikeList(filmId).size();
+    }
+
+    public int getPendingCount() {
+        lock.readLock().lock();
+        try {
+            return pending.size.get() + (flushing != null ? flushing.size.get() : 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.like-buffer.flush-interval-ms:1000}",
+            fixedDelayString = "${filmorate.like-buffer.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        lock.writeLock().lock();
+        try {
+            if (pending.size.get() == 0) {
+                return;
+            }
+
+            flushing = pending;
+            pending = new Pending();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<LikeEvent> events = flushing.toEvents();
+
+        try {
+            filmStorage.applyLikeEvents(events);
+            log.info("Буфер лайков сброшен. Событий: " + events.size());
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить буфер лайков, событий: " + events.size() + ". " + e.getMessage());
+
+            lock.writeLock().lock();
+            try {
+                pending.putOlder(flushing);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                flushing = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.buffer.pending", this, LikeWriteBuffer::getPendingCount)
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+
+        if (getPendingCount() > 0) {
+            log.error("При остановке в буфере остались несохраненные лайки: " + getPendingCount());
+        }
+    }
+
+    private void add(List<LikeEvent> events) {
+        int size;
+
+        lock.readLock().lock();
+        try {
+            events.forEach(pending::put);
+            size = pending.size.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (size >= flushSize) {
+            flush();
+        }
+    }
+
+    private boolean hasPending(Long filmId) {
+        lock.readLock().lock();
+        try {
+            return pending.operations.containsKey(filmId) ||
+                    (flushing != null && flushing.operations.containsKey(filmId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Pending {
+        private final Map<Long, Map<Long, LikeOperation>> operations = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private void put(LikeEvent event) {
+            Map<Long, LikeOperation> filmOperations =
+                    operations.computeIfAbsent(event.getFilmId(), id -> new ConcurrentHashMap<>());
+
+            if (filmOperations.put(event.getUserId(), event.getOperation()) == null) {
+                size.incrementAndGet();
+            }
+        }
+
+        private void putOlder(Pending older) {
+            older.operations.forEach((filmId, filmOperations) -> filmOperations.forEach((userId, operation) -> {
+                if (operations.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>())
+                        .putIfAbsent(userId, operation) == null) {
+                    size.incrementAndGet();
+                }
+            }));
+        }
+
+        private void applyTo(Long filmId, Set<Long> likeList) {
+            operations.getOrDefault(filmId, Collections.emptyMap()).forEach((userId, operation) -> {
+                if (operation == LikeOperation.UNLIKE) {
+                    likeList.remove(userId);
+                } else {
+                    likeList.add(userId);
+                }
+            });
+        }
+
+        private List<LikeEvent> toEvents() {
+            List<LikeEvent> events = new ArrayList<>(size.get());
+
+            operations.forEach((filmId, filmOperations) -> filmOperations.forEach((userId, operation) ->
+                    events.add(LikeEvent.builder().filmId(filmId).userId(userId).operation(operation).build())));
+
+            return events;
+        }
+
+    }
+
+}
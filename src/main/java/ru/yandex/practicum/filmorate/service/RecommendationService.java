@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.FilmServiceException;
+import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class RecommendationService {
+    static final int DEFAULT_COUNT = 10;
+
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final FilmSimilarityIndex similarityIndex;
+
+    public List<Film> getSimilarFilms(Long filmId, Integer count) throws RecordNotFoundException {
+        filmStorage.getFilmById(filmId);
+
+        return toFilms(similarityIndex.getSimilarFilmIds(filmId, countValidations(count)));
+    }
+
+    public List<Film> getRecommendations(Long userId, Integer count) throws RecordNotFoundException {
+        userStorage.getUserById(userId);
+
+        return toFilms(similarityIndex.getRecommendedFilmIds(userId, countValidations(count)));
+    }
+
+    private List<Film> toFilms(List<Long> filmIds) {
+        return filmIds.stream()
+                .map(filmStorage::getFilmById)
+                .collect(Collectors.toList());
+    }
+
+    private int countValidations(Integer count) throws FilmServiceException {
+        if (count == null) {
+            return DEFAULT_COUNT;
+        }
+
+        if (count < 0) {
+            throw new FilmServiceException("Количество фильмов не может быть отрицательным");
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.StorageOverloadedException;
+import ru.yandex.practicum.filmorate.metrics.RequestCallCounter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class StorageExecutors implements MeterBinder, DisposableBean {
+    static final String READ_POOL = "storage-read";
+    static final String WRITE_POOL = "storage-write";
+
+    private final ThreadPoolExecutor readExecutor;
+    private final ThreadPoolExecutor writeExecutor;
+    private final AtomicReference<MeterRegistry> meterRegistry = new AtomicReference<>();
+
+    public StorageExecutors(@Value("${filmorate.async.read.threads:8}") int readThreads,
+                            @Value("${filmorate.async.read.queue-capacity:100}") int readQueueCapacity,
+                            @Value("${filmorate.async.write.threads:2}") int writeThreads,
+                            @Value("${filmorate.async.write.queue-capacity:50}") int writeQueueCapacity) {
+        readExecutor = createExecutor(READ_POOL, readThreads, readQueueCapacity);
+        writeExecutor = createExecutor(WRITE_POOL, writeThreads, writeQueueCapacity);
+    }
+
+    public <T> CompletableFuture<T> read(Supplier<T> action) {
+        return CompletableFuture.supplyAsync(RequestCallCounter.propagate(action), readExecutor);
+    }
+
+    public <T> CompletableFuture<T> write(Supplier<T> action) {
+        return CompletableFuture.supplyAsync(RequestCallCounter.propagate(action), writeExecutor);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry.set(registry);
+        new ExecutorServiceMetrics(readExecutor, READ_POOL, Tags.empty()).bindTo(registry);
+        new ExecutorServiceMetrics(writeExecutor, WRITE_POOL, Tags.empty()).bindTo(registry);
+    }
+
+    @Override
+    public void destroy() {
+        readExecutor.shutdown();
+        writeExecutor.shutdown();
+    }
+
+    private ThreadPoolExecutor createExecutor(String name, int threads, int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+
+        threadFactory.setDaemon(true);
+
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory,
+                (task, executor) -> {
+                    MeterRegistry registry = meterRegistry.get();
+
+                    if (registry != null) {
+                        Counter.builder("filmorate.storage.executor.rejected")
+                                .tag("name", name)
+                                .register(registry)
+                                .increment();
+                    }
+
+                    log.warn("Очередь " + name + " переполнена, запрос отклонен");
+                    throw new StorageOverloadedException("Сервис перегружен, повторите запрос позже");
+                });
+    }
+
+}
@@ -1,28 +1,38 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserStorageException;
 import ru.yandex.practicum.filmorate.exception.UserValidationException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
-    @Qualifier("UserDbStorage") private final UserStorage userStorage;
+    static final int DEFAULT_SUGGESTION_COUNT = 10;
+    private final UserStorage userStorage;
+    private final FriendGraphIndex friendGraphIndex;
 
     public Set<User> getAll() {
         return userStorage.getAll();
     }
 
+    public CursorPage<User> getPage(Long afterId, Integer limit) throws UserValidationException {
+        pageLimitValidations(limit);
+
+        List<User> users = userStorage.getPage(afterId != null ? afterId : 0L, limit + 1);
+
+        return CursorPage.fromSlice(users, limit, User::getId);
+    }
+
     public User addNew(User user) throws UserStorageException, UserValidationException {
         return userStorage.addNew(user);
     }
@@ -41,6 +51,7 @@ public class UserService {
         User secondUser = userStorage.getUserById(secondUserId);
 
         userStorage.addToFriends(firstUser, secondUser);
+        friendGraphIndex.onFriendAdded(firstUser.getId(), secondUser.getId());
     }
 
     public void deleteFriends(Long firstUserId, Long secondUserId)
@@ -48,8 +59,7 @@ public class UserService {
         User firstUser = userStorage.getUserById(firstUserId);
         User secondUser = userStorage.getUserById(secondUserId);
 
-        userStorage.removeFromFriends(firstUser, secondUser);
-
+        userStorage.removeFromFriends(firstUser, secondUser, friendGraphIndex::onFriendRemoved);
     }
 
     public List<User> getFriendList(Long userId)
@@ -61,14 +71,44 @@ public class UserService {
         return new ArrayList<>();
     }
 
+    public CursorPage<User> getFriendListPage(Long userId, Long afterId, Integer limit)
+            throws RecordNotFoundException, UserValidationException {
+        pageLimitValidations(limit);
+        userStorage.existingUser(userId);
+
+        List<User> friends = userStorage.getUserFriendListPage(userId, afterId != null ? afterId : 0L, limit + 1);
+
+        return CursorPage.fromSlice(friends, limit, User::getId);
+    }
+
     public Set<User> getCommonFriendList(Long userId, Long otherUserId)
             throws RecordNotFoundException {
         userStorage.existingUser(userId);
         userStorage.existingUser(otherUserId);
 
-        return userStorage.getUserFriendList(userId)
-                .stream().filter(user -> userStorage.getUserFriendList(otherUserId).contains(user))
-                .collect(Collectors.toSet());
+        return new LinkedHashSet<>(userStorage.getCommonFriendList(userId, otherUserId));
+    }
+
+    public List<User> getFriendSuggestions(Long userId, Integer count)
+            throws RecordNotFoundException, UserValidationException {
+        userStorage.existingUser(userId);
+
+        if (count != null && count < 0) {
+            throw new UserValidationException("Количество пользователей не может быть отрицательным");
+        }
+
+        List<User> suggestions = new ArrayList<>();
+
+        friendGraphIndex.getSuggestedUserIds(userId, count != null ? count : DEFAULT_SUGGESTION_COUNT)
+                .forEach(suggestedId -> suggestions.add(userStorage.getUserById(suggestedId)));
+
+        return suggestions;
+    }
+
+    private void pageLimitValidations(Integer limit) throws UserValidationException {
+        if (limit == null || limit < 1) {
+            throw new UserValidationException("Размер страницы должен быть положительным");
+        }
     }
 
 }
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.function.Function;
+
+@Component
+public class FilmCache implements MeterBinder {
+    static final String CACHE_NAME = "films";
+
+    private final Cache<Long, Film> films;
+
+    public FilmCache(@Value("${filmorate.film-cache.maximum-size:10000}") long maximumSize) {
+        films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public Film get(Long id, Function<Long, Film> loader) {
+        return copyOf(films.get(id, loader));
+    }
+
+    public void invalidate(Long id) {
+        films.invalidate(id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    films.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public CacheStats getStats() {
+        return films.stats();
+    }
+
+    void cleanUp() {
+        films.cleanUp();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, films, CACHE_NAME);
+    }
+
+    static Film copyOf(Film film) {
+        Film copy = Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(film.getMpa())
+                .build();
+
+        if (film.getGenres() != null) {
+            copy.setGenres(film.getGenres());
+        }
+
+        return copy;
+    }
+
+}
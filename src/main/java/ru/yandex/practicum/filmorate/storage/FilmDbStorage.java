@@ -2,31 +2,42 @@ package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.comparator.FilmComparators;
-import ru.yandex.practicum.filmorate.comparator.GenreComparators;
-import ru.yandex.practicum.filmorate.comparator.MPAComparators;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.FilmValidationException;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.MPA;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component("FilmDbStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "db", matchIfMissing = true)
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmCache filmCache;
+    private final FilmVersions filmVersions;
+    static final int EXPORT_FETCH_SIZE = 1000;
     static final LocalDate LOW_THRESHOLD_DATE =
             LocalDate.parse("28.12.1895", DateTimeFormatter.ofPattern("dd.MM.yyyy"));
     static final int DESCRIPTION_LENGTH = 200;
@@ -34,84 +45,168 @@ public class FilmDbStorage implements FilmStorage {
     @Override
     public List<Film> getAll() {
         String sqlQuery = "SELECT f.ID AS \"FILM_ID\", f.NAME, f.DESCRIPTION, f.RELEASE_DATE, " +
-                "f.DURATION_MIN, m.ID AS \"MPA_ID\" , m.NAME AS \"MPA_NAME\" " +
+                "f.DURATION_MIN, ma.MPA_ID " +
                 "from FILMS f " +
                 "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
-                "LEFT JOIN MPAS m ON m.ID = ma.MPA_ID";
+                "ORDER BY f.ID";
 
         List<Film> fetchedFilms = jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
 
-        fetchedFilms
-                .forEach(film -> {
-                    film.setGenres(getGenresForFilm(film));
-                });
-
-        fetchedFilms.sort(FilmComparators.compareFilmById);
+        loadGenresForFilms(fetchedFilms);
 
         return fetchedFilms;
     }
 
-    public List<Genre> getAllGenres() {
-        String sqlQuery = "SELECT ID, NAME from GENRES";
-        List<Genre> outPutList = new ArrayList<>(jdbcTemplate.query(sqlQuery, this::mapRowToGenre));
+    @Override
+    public List<Film> getPage(Long afterId, int limit) {
+        String sqlQuery = "SELECT f.ID AS \"FILM_ID\", f.NAME, f.DESCRIPTION, f.RELEASE_DATE, " +
+                "f.DURATION_MIN, ma.MPA_ID " +
+                "from FILMS f " +
+                "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
+                "WHERE f.ID > ? " +
+                "ORDER BY f.ID " +
+                "LIMIT ?";
 
-        outPutList.sort(GenreComparators.compareGenreById);
-        return outPutList;
+        List<Film> fetchedFilms = jdbcTemplate.query(sqlQuery, this::mapRowToFilm, afterId, limit);
+
+        loadGenresForFilms(fetchedFilms);
+
+        return fetchedFilms;
     }
 
     @Override
-    public List<MPA> getAllMPAs() {
-        String sqlQuery = "SELECT ID, NAME from MPAs";
-        List<MPA> outPutList = new ArrayList<>(jdbcTemplate.query(sqlQuery, this::mapRowToMPA));
+    public List<Film> findByFilter(FilmFilter filter, Long afterId, int limit) {
+        StringBuilder sqlQuery = new StringBuilder("SELECT f.ID AS \"FILM_ID\", f.NAME, f.DESCRIPTION, " +
+                "f.RELEASE_DATE, f.DURATION_MIN, ma.MPA_ID " +
+                "from FILMS f " +
+                "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
+                "WHERE f.ID > ?");
+        List<Object> params = new ArrayList<>();
+
+        params.add(afterId);
+
+        if (filter.getGenre() != null) {
+            sqlQuery.append(" AND EXISTS (SELECT 1 FROM GENRE_ASSIGNMENTS ga " +
+                    "WHERE ga.FILM_ID = f.ID AND ga.GENRE_ID = ?)");
+            params.add(filter.getGenre());
+        }
+
+        if (filter.getMpa() != null) {
+            sqlQuery.append(" AND ma.MPA_ID = ?");
+            params.add(filter.getMpa());
+        }
+
+        if (filter.getReleasedFrom() != null) {
+            sqlQuery.append(" AND f.RELEASE_DATE >= ?");
+            params.add(filter.getReleasedFrom());
+        }
+
+        if (filter.getReleasedTo() != null) {
+            sqlQuery.append(" AND f.RELEASE_DATE <= ?");
+            params.add(filter.getReleasedTo());
+        }
+
+        if (filter.getMinDuration() != null) {
+            sqlQuery.append(" AND f.DURATION_MIN >= ?");
+            params.add(filter.getMinDuration());
+        }
+
+        if (filter.getMaxDuration() != null) {
+            sqlQuery.append(" AND f.DURATION_MIN <= ?");
+            params.add(filter.getMaxDuration());
+        }
+
+        sqlQuery.append(" ORDER BY f.ID LIMIT ?");
+        params.add(limit);
+
+        List<Film> fetchedFilms = jdbcTemplate.query(sqlQuery.toString(), this::mapRowToFilm, params.toArray());
+
+        loadGenresForFilms(fetchedFilms);
 
-        outPutList.sort(MPAComparators.compareMPAById);
-        return outPutList;
+        return fetchedFilms;
     }
 
     @Override
-    public Genre getGenreById(Long id) {
-        String sqlQuery = "SELECT ID, NAME from GENRES " +
-                "WHERE id = ?";
-        try {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToGenre, id);
+    public void streamAll(Consumer<Film> consumer) {
+        String sqlQuery = "SELECT f.ID AS \"FILM_ID\", f.NAME, f.DESCRIPTION, f.RELEASE_DATE, " +
+                "f.DURATION_MIN, ma.MPA_ID, ga.GENRE_ID " +
+                "from FILMS f " +
+                "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
+                "LEFT JOIN GENRE_ASSIGNMENTS ga ON ga.FILM_ID = f.ID " +
+                "ORDER BY f.ID, ga.GENRE_ID";
+        Film[] currentFilm = new Film[1];
+        List<Genre> currentGenres = new ArrayList<>();
 
-        } catch (EmptyResultDataAccessException ex) {
-            throw new RecordNotFoundException("Жанр с ID " + id + " не найден.");
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
 
+            return statement;
+        }, resultSet -> {
+            long filmId = resultSet.getLong("FILM_ID");
+
+            if (currentFilm[0] == null || currentFilm[0].getId() != filmId) {
+                if (currentFilm[0] != null) {
+                    currentFilm[0].setGenres(currentGenres);
+                    consumer.accept(currentFilm[0]);
+                    currentGenres.clear();
+                }
+
+                currentFilm[0] = mapRowToFilm(resultSet, 0);
+            }
+
+            long genreId = resultSet.getLong("GENRE_ID");
+
+            if (!resultSet.wasNull()) {
+                referenceDataCache.findGenreById(genreId).ifPresent(currentGenres::add);
+            }
+        });
+
+        if (currentFilm[0] != null) {
+            currentFilm[0].setGenres(currentGenres);
+            consumer.accept(currentFilm[0]);
         }
     }
 
     @Override
-    public MPA getMPAById(Long id) {
-        String sqlQuery = "SELECT ID, NAME from MPAs " +
-                "WHERE id = ?";
-        try {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToMPA, id);
+    public List<Genre> getAllGenres() {
+        return referenceDataCache.getAllGenres();
+    }
 
-        } catch (EmptyResultDataAccessException ex) {
-            throw new RecordNotFoundException("Рейтинг с ID " + id + " не найден.");
+    @Override
+    public List<MPA> getAllMPAs() {
+        return referenceDataCache.getAllMPAs();
+    }
 
-        }
+    @Override
+    public Genre getGenreById(Long id) {
+        return referenceDataCache.findGenreById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Жанр с ID " + id + " не найден."));
+    }
+
+    @Override
+    public MPA getMPAById(Long id) {
+        return referenceDataCache.findMPAById(id)
+                .orElseThrow(() -> new RecordNotFoundException("Рейтинг с ID " + id + " не найден."));
     }
 
     @Override
+    @Transactional
     public Film addNew(Film film) {
         filmValidations(film);
-
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("FILMS")
-                .usingGeneratedKeyColumns("id");
-        Long filmRecordId = simpleJdbcInsert.executeAndReturnKey(film.toMap()).longValue();
-
-        film.setId(filmRecordId);
+        insertFilms(List.of(film));
 
         String sqlQuery =
                 "INSERT INTO MPA_ASSIGNMENTS (FILM_ID, MPA_ID) " +
                         "VALUES (?, ?);";
 
-        jdbcTemplate.update(sqlQuery, filmRecordId, film.getMpa().getId());
+        jdbcTemplate.update(sqlQuery, film.getId(), film.getMpa().getId());
 
-        setGenresForFilm(film);
+        if (film.getGenres() != null) {
+            updateGenresForFilm(film, Collections.emptySet());
+        }
 
         log.info("Новый фильм добавлен успешно. id:" + film.getId());
 
@@ -119,8 +214,65 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
+    public List<BatchItemResult> addNewBatch(List<Film> films) {
+        Map<Integer, String> errors = new HashMap<>();
+        List<Film> validFilms = new ArrayList<>();
+
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                filmValidations(films.get(i));
+                referenceValidations(films.get(i));
+                validFilms.add(films.get(i));
+
+            } catch (FilmValidationException | RecordNotFoundException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        if (!validFilms.isEmpty()) {
+            insertFilms(validFilms);
+
+            List<Object[]> mpaAssignments = new ArrayList<>();
+            List<Object[]> genreAssignments = new ArrayList<>();
+
+            validFilms.forEach(film -> {
+                mpaAssignments.add(new Object[]{film.getId(), film.getMpa().getId()});
+
+                if (film.getGenres() != null) {
+                    film.setGenres(film.getGenres());
+                    film.getGenres().forEach(genre -> genreAssignments.add(new Object[]{film.getId(), genre.getId()}));
+                }
+            });
+
+            jdbcTemplate.batchUpdate("INSERT INTO MPA_ASSIGNMENTS (FILM_ID, MPA_ID) VALUES (?, ?)", mpaAssignments);
+
+            if (!genreAssignments.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO GENRE_ASSIGNMENTS (FILM_ID, GENRE_ID) VALUES (?, ?)",
+                        genreAssignments);
+            }
+        }
+
+        List<BatchItemResult> results = new ArrayList<>();
+
+        for (int i = 0; i < films.size(); i++) {
+            results.add(BatchItemResult.builder()
+                    .index(i)
+                    .id(errors.containsKey(i) ? null : films.get(i).getId())
+                    .error(errors.get(i))
+                    .build());
+        }
+
+        log.info("Пакет фильмов добавлен. Добавлено: " + validFilms.size() + ", с ошибками: " + errors.size());
+
+        return results;
+    }
+
+    @Override
+    @Transactional
     public Film change(Film film) {
-        getFilmById(film.getId());
+        StoredAssignments storedAssignments = loadAssignments(film.getId());
+
         filmValidations(film);
         String sqlQuery = "UPDATE FILMS SET NAME = ?, DESCRIPTION = ?, RELEASE_DATE = ?, DURATION_MIN = ? WHERE id = ?;";
 
@@ -132,15 +284,20 @@ public class FilmDbStorage implements FilmStorage {
                 film.getId());
 
         String sqlQueryMPAAssignment =
-                "UPDATE MPA_ASSIGNMENTS SET MPA_ID = ? WHERE ID = (SELECT ID FROM MPA_ASSIGNMENTS WHERE FILM_ID = ?);";
+                "MERGE INTO MPA_ASSIGNMENTS (FILM_ID, MPA_ID) KEY (FILM_ID) VALUES (?, ?);";
 
-        if (film.getMpa() != null) {
+        if (film.getMpa() != null && !Objects.equals(film.getMpa().getId(), storedAssignments.mpaId)) {
             jdbcTemplate.update(sqlQueryMPAAssignment,
-                    film.getMpa().getId(),
-                    film.getId());
+                    film.getId(),
+                    film.getMpa().getId());
         }
 
-        setGenresForFilm(film);
+        if (film.getGenres() != null) {
+            updateGenresForFilm(film, storedAssignments.genreIds);
+        }
+
+        filmCache.invalidate(film.getId());
+        filmVersions.bump(film.getId());
 
         log.info("Запись фильма изменена успешно. id:" + film.getId());
         return film;
@@ -148,15 +305,32 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Film getFilmById(Long id) {
+        if (id == null) {
+            throw new RecordNotFoundException("Фильм с ID " + id + " не найден.");
+        }
+
+        return filmCache.get(id, this::loadFilmById);
+    }
+
+    @Override
+    public String getFilmVersion(Long id) {
+        return filmVersions.get(id);
+    }
+
+    @Override
+    public String getReferenceDataVersion() {
+        return referenceDataCache.getVersion();
+    }
+
+    private Film loadFilmById(Long id) {
         String sqlQuery = "SELECT f.ID AS \"FILM_ID\", f.NAME, f.DESCRIPTION, f.RELEASE_DATE, " +
-                "f.DURATION_MIN, m.ID AS \"MPA_ID\" , m.NAME AS \"MPA_NAME\" " +
+                "f.DURATION_MIN, ma.MPA_ID " +
                 "from FILMS f " +
                 "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
-                "LEFT JOIN MPAS m ON m.ID = ma.MPA_ID " +
                 "WHERE f.id = ?";
         try {
             Film film = jdbcTemplate.queryForObject(sqlQuery, this::mapRowToFilm, id);
-            film.setGenres(getGenresForFilm(film));
+            loadGenresForFilms(List.of(film));
 
             return film;
 
@@ -186,52 +360,150 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    public Map<Long, Set<Long>> getAllLikeLists() {
+        Map<Long, Set<Long>> likeLists = new HashMap<>();
+
+        jdbcTemplate.query("SELECT FILM_ID, USER_ID FROM FILM_LIKES", resultSet -> {
+            likeLists.computeIfAbsent(resultSet.getLong("FILM_ID"), id -> new HashSet<>())
+                    .add(resultSet.getLong("USER_ID"));
+        });
+
+        return likeLists;
+    }
+
+    @Override
+    @Transactional
     public void createLikeFilmByUser(Long filmId, Long userId) {
         try {
             getFilmById(filmId);
 
-            if (getLikeRecordMadeByUser(filmId, userId) < 0) {
-                String sqlQuery =
-                        "INSERT INTO FILM_LIKES (FILM_ID, USER_ID) " +
-                                "VALUES (?, ?);";
+            String sqlQuery =
+                    "INSERT INTO FILM_LIKES (FILM_ID, USER_ID) " +
+                            "SELECT ?, ? WHERE NOT EXISTS " +
+                            "(SELECT 1 FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID = ?);";
 
-                jdbcTemplate.update(sqlQuery, filmId, userId);
+            if (jdbcTemplate.update(sqlQuery, filmId, userId, filmId, userId) > 0) {
+                changeLikeCount(filmId, 1);
             }
 
         } catch (EmptyResultDataAccessException e) {
             throw new RecordNotFoundException("Фильм с ID " + filmId + " не найден.");
+        } catch (DuplicateKeyException e) {
+            log.info("Лайк фильму " + filmId + " от пользователя " + userId + " уже поставлен.");
         }
     }
 
     @Override
+    @Transactional
     public void deleteLikeFilmByUser(Long filmId, Long userId) {
         String sqlQuery =
                 "DELETE FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID =?";
 
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        if (jdbcTemplate.update(sqlQuery, filmId, userId) > 0) {
+            changeLikeCount(filmId, -1);
+        }
     }
 
     @Override
     public int getFilmLikeStorageCount(Long filmId) {
-        String sqlQuery = "SELECT COUNT(DISTINCT ID) FROM FILM_LIKES WHERE FILM_ID = ?";
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
+        String sqlQuery = "SELECT LIKE_COUNT FROM FILMS WHERE ID = ?";
+        SqlRowSet filmRows = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
 
-        if (userRows.next()) {
-            return userRows.getInt("COUNT(DISTINCT ID)");
+        if (filmRows.next()) {
+            return filmRows.getInt("LIKE_COUNT");
         }
 
         return -1;
     }
 
-    public Long getLikeRecordMadeByUser(Long filmId, Long userId) {
-        String sqlQuery = "SELECT ID FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID = ?";
-        try {
-            return jdbcTemplate.queryForObject(sqlQuery, Long.class, filmId, userId);
+    @Override
+    @Transactional
+    public int rebuildLikeCounts() {
+        String sqlQuery = "UPDATE FILMS f " +
+                "SET LIKE_COUNT = (SELECT COUNT(*) FROM FILM_LIKES fl WHERE fl.FILM_ID = f.ID) " +
+                "WHERE LIKE_COUNT <> (SELECT COUNT(*) FROM FILM_LIKES fl WHERE fl.FILM_ID = f.ID)";
+
+        int correctedFilms = jdbcTemplate.update(sqlQuery);
+
+        log.info("Счетчики лайков пересчитаны. Исправлено фильмов: " + correctedFilms);
+        return correctedFilms;
+    }
+
+    @Override
+    public Set<Long> getExistingFilmIds(Collection<Long> ids) {
+        Set<Long> existingIds = new HashSet<>();
+
+        for (List<Long> chunk : SqlInClause.chunks(ids)) {
+            String sqlQuery = "SELECT ID FROM FILMS WHERE ID IN " + SqlInClause.placeholders(chunk.size());
 
-        } catch (Exception e) {
-            return -1L;
+            existingIds.addAll(jdbcTemplate.queryForList(sqlQuery, Long.class, chunk.toArray()));
         }
 
+        return existingIds;
+    }
+
+    @Override
+    @Transactional
+    public void applyLikeEvents(List<LikeEvent> events) {
+        Map<List<Long>, LikeOperation> finalOperations = new LinkedHashMap<>();
+
+        events.forEach(event -> finalOperations.put(List.of(event.getFilmId(), event.getUserId()), event.getOperation()));
+
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> unlikes = new ArrayList<>();
+        Set<Long> touchedFilmIds = new HashSet<>();
+
+        finalOperations.forEach((filmAndUser, operation) -> {
+            if (operation == LikeOperation.UNLIKE) {
+                unlikes.add(filmAndUser.toArray());
+            } else {
+                likes.add(filmAndUser.toArray());
+            }
+
+            touchedFilmIds.add(filmAndUser.get(0));
+        });
+
+        if (!likes.isEmpty()) {
+            jdbcTemplate.batchUpdate("MERGE INTO FILM_LIKES (FILM_ID, USER_ID) KEY (FILM_ID, USER_ID) " +
+                    "VALUES (?, ?)", likes);
+        }
+
+        if (!unlikes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID = ?", unlikes);
+        }
+
+        for (List<Long> chunk : SqlInClause.chunks(touchedFilmIds)) {
+            String sqlQuery = "UPDATE FILMS f " +
+                    "SET LIKE_COUNT = (SELECT COUNT(*) FROM FILM_LIKES fl WHERE fl.FILM_ID = f.ID) " +
+                    "WHERE f.ID IN " + SqlInClause.placeholders(chunk.size());
+
+            jdbcTemplate.update(sqlQuery, chunk.toArray());
+        }
+
+        log.info("Пакет лайков применен. Событий: " + events.size() + ", фильмов: " + touchedFilmIds.size());
+    }
+
+    private void changeLikeCount(Long filmId, int delta) {
+        String sqlQuery = "UPDATE FILMS SET LIKE_COUNT = LIKE_COUNT + ? WHERE ID = ?";
+
+        jdbcTemplate.update(sqlQuery, delta, filmId);
+    }
+
+    @Override
+    public List<Film> getPopular(Integer count) {
+        String sqlQuery = "SELECT f.ID AS \"FILM_ID\", f.NAME, f.DESCRIPTION, f.RELEASE_DATE, " +
+                "f.DURATION_MIN, ma.MPA_ID " +
+                "from FILMS f " +
+                "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
+                "ORDER BY f.LIKE_COUNT DESC, f.ID " +
+                "LIMIT ?";
+
+        List<Film> popularFilms = jdbcTemplate.query(sqlQuery, this::mapRowToFilm,
+                count != null ? count : Integer.MAX_VALUE);
+
+        loadGenresForFilms(popularFilms);
+
+        return popularFilms;
     }
 
     private Film mapRowToFilm(ResultSet resultSet, int rowNum) throws SQLException {
@@ -241,24 +513,13 @@ public class FilmDbStorage implements FilmStorage {
                 .description(resultSet.getString("description"))
                 .releaseDate(resultSet.getDate("release_date").toLocalDate())
                 .duration(resultSet.getInt("duration_min"))
-                .mpa(MPA.builder()
-                        .id(resultSet.getLong("MPA_ID"))
-                        .name(resultSet.getString("MPA_NAME")).build())
+                .mpa(mapMPA(resultSet.getLong("MPA_ID")))
                 .build();
     }
 
-    private Genre mapRowToGenre(ResultSet resultSet, int rowNum) throws SQLException {
-        return Genre.builder()
-                .id(resultSet.getLong("ID"))
-                .name(resultSet.getString("NAME"))
-                .build();
-    }
-
-    private MPA mapRowToMPA(ResultSet resultSet, int rowNum) throws SQLException {
-        return MPA.builder()
-                .id(resultSet.getLong("ID"))
-                .name(resultSet.getString("NAME"))
-                .build();
+    private MPA mapMPA(Long mpaId) {
+        return referenceDataCache.findMPAById(mpaId)
+                .orElseGet(() -> MPA.builder().id(mpaId).build());
     }
 
     private void filmValidations(Film film) throws FilmValidationException {
@@ -289,61 +550,135 @@ public class FilmDbStorage implements FilmStorage {
 
     }
 
-    private List<Long> setGenresForFilm(Film film) {
-        List<Long> responseRecordIds = new ArrayList<>();
+    private void referenceValidations(Film film) throws FilmValidationException, RecordNotFoundException {
+        if (film.getMpa() == null) {
+            throw new FilmValidationException("Рейтинг фильма должен быть указан");
+        }
+
+        getMPAById(film.getMpa().getId());
 
         if (film.getGenres() != null) {
-            clearGenresForFilm(film.getId());
-            film.setGenres(film.getGenres());
-            if (film.getGenres().size() > 0) {
-                film.getGenres().forEach(genre -> {
-                    Map<String, Object> genreAssignment = new HashMap<>();
-                    genreAssignment.put("FILM_ID", film.getId());
-                    genreAssignment.put("GENRE_ID", genre != null ? genre.getId() : null);
+            for (Genre genre : film.getGenres()) {
+                if (genre == null) {
+                    throw new FilmValidationException("Жанр фильма не может быть пустым");
+                }
+
+                getGenreById(genre.getId());
+            }
+        }
+    }
+
+    private void insertFilms(List<Film> films) {
+        String sqlQuery = "INSERT INTO FILMS (NAME, DESCRIPTION, RELEASE_DATE, DURATION_MIN) VALUES (?, ?, ?, ?)";
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sqlQuery, new String[]{"ID"})) {
+                for (Film film : films) {
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setObject(3, film.getReleaseDate());
+                    statement.setObject(4, film.getDuration());
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
+
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    int filmIndex = 0;
+
+                    while (generatedKeys.next()) {
+                        films.get(filmIndex++).setId(generatedKeys.getLong(1));
+                    }
+                }
+            }
 
-                    SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                            .withTableName("GENRE_ASSIGNMENTS")
-                            .usingGeneratedKeyColumns("ID");
+            return null;
+        });
+    }
+
+    private StoredAssignments loadAssignments(Long filmId) {
+        String sqlQuery = "SELECT f.ID AS \"FILM_ID\", ma.MPA_ID, ga.GENRE_ID " +
+                "from FILMS f " +
+                "LEFT JOIN MPA_ASSIGNMENTS ma ON ma.FILM_ID = f.ID " +
+                "LEFT JOIN GENRE_ASSIGNMENTS ga ON ga.FILM_ID = f.ID " +
+                "WHERE f.ID = ?";
+        StoredAssignments storedAssignments = new StoredAssignments();
+        boolean[] found = new boolean[1];
+
+        jdbcTemplate.query(sqlQuery, resultSet -> {
+            found[0] = true;
+            storedAssignments.mpaId = resultSet.getObject("MPA_ID", Long.class);
+
+            long genreId = resultSet.getLong("GENRE_ID");
+
+            if (!resultSet.wasNull()) {
+                storedAssignments.genreIds.add(genreId);
+            }
+        }, filmId);
+
+        if (!found[0]) {
+            throw new RecordNotFoundException("Фильм с ID " + filmId + " не найден.");
+        }
+
+        return storedAssignments;
+    }
 
-                    responseRecordIds.add(simpleJdbcInsert.executeAndReturnKey(genreAssignment).longValue());
+    private void updateGenresForFilm(Film film, Set<Long> storedGenreIds) {
+        Set<Long> requestedGenreIds = new LinkedHashSet<>();
 
-                });
+        film.getGenres().forEach(genre -> requestedGenreIds.add(genre != null ? genre.getId() : null));
 
+        List<Object[]> removedAssignments = new ArrayList<>();
+        List<Object[]> addedAssignments = new ArrayList<>();
+
+        storedGenreIds.forEach(genreId -> {
+            if (!requestedGenreIds.contains(genreId)) {
+                removedAssignments.add(new Object[]{film.getId(), genreId});
+            }
+        });
+        requestedGenreIds.forEach(genreId -> {
+            if (!storedGenreIds.contains(genreId)) {
+                addedAssignments.add(new Object[]{film.getId(), genreId});
             }
+        });
+
+        if (!removedAssignments.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM GENRE_ASSIGNMENTS WHERE FILM_ID = ? AND GENRE_ID = ?",
+                    removedAssignments);
         }
 
+        if (!addedAssignments.isEmpty()) {
+            jdbcTemplate.batchUpdate("MERGE INTO GENRE_ASSIGNMENTS (FILM_ID, GENRE_ID) KEY (FILM_ID, GENRE_ID) " +
+                    "VALUES (?, ?);", addedAssignments);
+        }
 
-        return responseRecordIds;
+        film.setGenres(film.getGenres());
     }
 
-    private List<Genre> getGenresForFilm(Film film) {
-        Set<Genre> genreSet = new HashSet<>();
+    private void loadGenresForFilms(List<Film> films) {
+        Map<Long, List<Genre>> genresByFilmId = new HashMap<>();
 
-        String sqlQuery = "SELECT g.ID, g.NAME " +
-                "FROM GENRES g " +
-                "LEFT JOIN GENRE_ASSIGNMENTS ga ON ga.GENRE_ID = g.ID " +
-                "LEFT JOIN FILMS f  ON ga.FILM_ID  = f.ID " +
-                "WHERE f.ID = ?";
+        films.forEach(film -> genresByFilmId.put(film.getId(), new ArrayList<>()));
+
+        for (List<Long> chunk : SqlInClause.chunks(genresByFilmId.keySet())) {
+            String sqlQuery = "SELECT FILM_ID, GENRE_ID FROM GENRE_ASSIGNMENTS " +
+                    "WHERE FILM_ID IN " + SqlInClause.placeholders(chunk.size());
 
-        SqlRowSet filmRows = jdbcTemplate.queryForRowSet(sqlQuery, film.getId());
+            SqlRowSet genreRows = jdbcTemplate.queryForRowSet(sqlQuery, chunk.toArray());
 
-        while (filmRows.next()) {
-            genreSet.add(Genre
-                    .builder()
-                    .id(filmRows.getLong("ID"))
-                    .name(filmRows.getString("NAME"))
-                    .build()
-            );
+            while (genreRows.next()) {
+                referenceDataCache.findGenreById(genreRows.getLong("GENRE_ID"))
+                        .ifPresent(genresByFilmId.get(genreRows.getLong("FILM_ID"))::add);
+            }
         }
 
-        return new ArrayList<>(genreSet);
+        films.forEach(film -> film.setGenres(genresByFilmId.get(film.getId())));
     }
 
-    private void clearGenresForFilm(Long filmId) {
-        String sqlQuery =
-                "DELETE FROM GENRE_ASSIGNMENTS WHERE FILM_ID = ?";
+    private static final class StoredAssignments {
+        private final Set<Long> genreIds = new HashSet<>();
+        private Long mpaId;
 
-        jdbcTemplate.update(sqlQuery, filmId);
     }
 
 }
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.*;
+
+final class FilmFilterIndex {
+    private final BitSet allFilms = new BitSet();
+    private final Map<Long, BitSet> filmsByGenre = new HashMap<>();
+    private final Map<Long, BitSet> filmsByMpa = new HashMap<>();
+    private final NavigableMap<LocalDate, Set<Integer>> filmsByReleaseDate = new TreeMap<>();
+    private final Map<Integer, IndexedFilm> indexedFilms = new HashMap<>();
+
+    synchronized void put(Film film) {
+        int filmId = Math.toIntExact(film.getId());
+        IndexedFilm previous = indexedFilms.get(filmId);
+
+        if (previous != null) {
+            previous.genreIds.forEach(genreId -> filmsByGenre.get(genreId).clear(filmId));
+
+            if (previous.mpaId != null) {
+                filmsByMpa.get(previous.mpaId).clear(filmId);
+            }
+
+            if (previous.releaseDate != null) {
+                filmsByReleaseDate.get(previous.releaseDate).remove(filmId);
+            }
+        }
+
+        IndexedFilm indexed = new IndexedFilm(film);
+
+        indexed.genreIds.forEach(genreId -> filmsByGenre.computeIfAbsent(genreId, id -> new BitSet()).set(filmId));
+
+        if (indexed.mpaId != null) {
+            filmsByMpa.computeIfAbsent(indexed.mpaId, id -> new BitSet()).set(filmId);
+        }
+
+        if (indexed.releaseDate != null) {
+            filmsByReleaseDate.computeIfAbsent(indexed.releaseDate, date -> new HashSet<>()).add(filmId);
+        }
+
+        indexedFilms.put(filmId, indexed);
+        allFilms.set(filmId);
+    }
+
+    synchronized BitSet find(FilmFilter filter) {
+        BitSet candidates = (BitSet) allFilms.clone();
+
+        if (filter.getGenre() != null) {
+            candidates.and(filmsByGenre.getOrDefault(filter.getGenre(), new BitSet()));
+        }
+
+        if (filter.getMpa() != null) {
+            candidates.and(filmsByMpa.getOrDefault(filter.getMpa(), new BitSet()));
+        }
+
+        if (filter.getReleasedFrom() != null || filter.getReleasedTo() != null) {
+            BitSet releasedInRange = new BitSet();
+            LocalDate from = filter.getReleasedFrom() != null ? filter.getReleasedFrom() : LocalDate.MIN;
+            LocalDate to = filter.getReleasedTo() != null ? filter.getReleasedTo() : LocalDate.MAX;
+
+            if (!from.isAfter(to)) {
+                filmsByReleaseDate.subMap(from, true, to, true).values()
+                        .forEach(filmIds -> filmIds.forEach(releasedInRange::set));
+            }
+
+            candidates.and(releasedInRange);
+        }
+
+        return candidates;
+    }
+
+    private static final class IndexedFilm {
+        private final Set<Long> genreIds = new HashSet<>();
+        private final Long mpaId;
+        private final LocalDate releaseDate;
+
+        private IndexedFilm(Film film) {
+            if (film.getGenres() != null) {
+                film.getGenres().stream()
+                        .map(Genre::getId)
+                        .filter(Objects::nonNull)
+                        .forEach(genreIds::add);
+            }
+
+            mpaId = film.getMpa() != null ? film.getMpa().getId() : null;
+            releaseDate = film.getReleaseDate();
+        }
+
+    }
+
+}
@@ -1,24 +1,44 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
 import ru.yandex.practicum.filmorate.model.MPA;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.function.Consumer;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface FilmStorage {
     List<Film> getAll();
 
+    List<Film> getPage(Long afterId, int limit);
+
+    List<Film> findByFilter(FilmFilter filter, Long afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Film addNew(Film film);
 
+    List<BatchItemResult> addNewBatch(List<Film> films);
+
     Film change(Film film);
 
     Film getFilmById(Long id);
 
+    String getFilmVersion(Long id);
+
+    String getReferenceDataVersion();
+
     Set<Long> getLikeListForFilm(Long id);
 
+    Map<Long, Set<Long>> getAllLikeLists();
+
     LocalDate getLowThresholdDate();
 
     void createLikeFilmByUser(Long filmId, Long userId);
@@ -27,6 +47,12 @@ public interface FilmStorage {
 
     int getFilmLikeStorageCount(Long filmId);
 
+    int rebuildLikeCounts();
+
+    Set<Long> getExistingFilmIds(Collection<Long> ids);
+
+    void applyLikeEvents(List<LikeEvent> events);
+
     List<Genre> getAllGenres();
 
     List<MPA> getAllMPAs();
@@ -35,4 +61,6 @@ public interface FilmStorage {
 
     MPA getMPAById(Long id);
 
+    List<Film> getPopular(Integer count);
+
 }
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class FilmVersions {
+    static final int STRIPES = 4096;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    public String get(Long filmId) {
+        return epoch + "." + versions.get(stripeOf(filmId));
+    }
+
+    public void bump(Long filmId) {
+        int stripe = stripeOf(filmId);
+
+        versions.incrementAndGet(stripe);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    versions.incrementAndGet(stripe);
+                }
+            });
+        }
+    }
+
+    private int stripeOf(Long filmId) {
+        return Math.floorMod(Long.hashCode(filmId), STRIPES);
+    }
+
+}
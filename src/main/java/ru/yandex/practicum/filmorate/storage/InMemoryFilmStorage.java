@@ -1,63 +1,215 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.FilmStorageException;
 import ru.yandex.practicum.filmorate.exception.FilmValidationException;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.MPA;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component("InMemoryFilmStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
 public class InMemoryFilmStorage implements FilmStorage {
-    private List<Film> films = new ArrayList<>();
-    private HashMap<Long, Set<Long>> likeLists = new HashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final FilmVersions filmVersions = new FilmVersions();
+    private final FilmFilterIndex filterIndex = new FilmFilterIndex();
+    private final ConcurrentMap<Long, Set<Long>> likeLists = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Integer> likeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<PopularityEntry> popularityRanking =
+            new ConcurrentSkipListSet<>(PopularityEntry.COMPARATOR);
 
     static final LocalDate LOW_THRESHOLD_DATE =
             LocalDate.parse("28.12.1895", DateTimeFormatter.ofPattern("dd.MM.yyyy"));
     static final int DESCRIPTION_LENGTH = 200;
+    static final List<String> GENRE_NAMES =
+            List.of("Комедия", "Драма", "Мультфильм", "Триллер", "Документальный", "Боевик");
+    static final List<String> MPA_NAMES = List.of("G", "PG", "PG-13", "R", "NC-17");
+    static final String REFERENCE_DATA_VERSION = "1";
 
     @Override
     public List<Film> getAll() {
-        return films;
+        List<Film> allFilms = new ArrayList<>(films.size());
+
+        films.values().forEach(film -> allFilms.add(FilmCache.copyOf(film)));
+
+        return allFilms;
+    }
+
+    @Override
+    public List<Film> getPage(Long afterId, int limit) {
+        List<Film> page = new ArrayList<>();
+
+        for (Film film : films.tailMap(afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+
+            page.add(FilmCache.copyOf(film));
+        }
+
+        return page;
+    }
+
+    @Override
+    public List<Film> findByFilter(FilmFilter filter, Long afterId, int limit) {
+        List<Film> page = new ArrayList<>();
+
+        if (afterId >= Integer.MAX_VALUE) {
+            return page;
+        }
+
+        BitSet candidates = filterIndex.find(filter);
+
+        for (int id = candidates.nextSetBit((int) Math.max(afterId, -1L) + 1);
+             id >= 0 && page.size() < limit;
+             id = candidates.nextSetBit(id + 1)) {
+            Film film = films.get((long) id);
+
+            if (film != null && matchesDuration(film, filter)) {
+                page.add(FilmCache.copyOf(film));
+            }
+        }
+
+        return page;
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        films.values().forEach(film -> consumer.accept(FilmCache.copyOf(film)));
     }
 
     @Override
     public Film addNew(Film film) throws FilmValidationException, FilmStorageException {
         filmValidations(film);
-        if (films.contains(film)) {
+        referenceValidations(film);
+        if (film.getId() != null && film.equals(films.get(film.getId()))) {
             throw new FilmStorageException("Такой фильм уже добавлен");
         }
 
-        assignNewId(film);
-        films.add(film);
+        Film storedFilm = FilmCache.copyOf(film);
+
+        storedFilm.setMpa(getMPAById(film.getMpa().getId()));
+        storedFilm.setGenres(film.getGenres() != null ? resolveGenres(film.getGenres()) : new ArrayList<>());
+        film.setId(idSequence.incrementAndGet());
+        storedFilm.setId(film.getId());
+
+        films.put(storedFilm.getId(), storedFilm);
+        filterIndex.put(storedFilm);
+        changeLikeCount(film.getId(), 0);
         log.info("Новый фильм добавлен успешно. id:" + film.getId());
 
-        return film;
+        return FilmCache.copyOf(storedFilm);
     }
 
     @Override
-    public Film change(Film film) throws FilmValidationException, FilmStorageException {
-        Film filmFromBase = getFilmById(film.getId());
+    public List<BatchItemResult> addNewBatch(List<Film> films) {
+        List<BatchItemResult> results = new ArrayList<>();
+
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                results.add(BatchItemResult.builder().index(i).id(addNew(films.get(i)).getId()).build());
+
+            } catch (FilmValidationException | FilmStorageException | RecordNotFoundException e) {
+                results.add(BatchItemResult.builder().index(i).error(e.getMessage()).build());
+            }
+        }
+
+        return results;
+    }
 
+    @Override
+    public Film change(Film film) throws FilmValidationException, FilmStorageException {
+        getStoredFilm(film.getId());
         filmValidations(film);
-        filmFromBase.setName(film.getName());
-        filmFromBase.setDescription(film.getDescription());
-        filmFromBase.setReleaseDate(film.getReleaseDate());
-        filmFromBase.setDuration(film.getDuration());
+
+        MPA mpa = film.getMpa() != null ? getMPAById(film.getMpa().getId()) : null;
+        List<Genre> genres = film.getGenres() != null ? resolveGenres(film.getGenres()) : null;
+        Film storedFilm;
+        Film updatedFilm;
+
+        do {
+            storedFilm = getStoredFilm(film.getId());
+            updatedFilm = FilmCache.copyOf(storedFilm);
+            updatedFilm.setName(film.getName());
+            updatedFilm.setDescription(film.getDescription());
+            updatedFilm.setReleaseDate(film.getReleaseDate());
+            updatedFilm.setDuration(film.getDuration());
+
+            if (mpa != null) {
+                updatedFilm.setMpa(mpa);
+            }
+
+            if (genres != null) {
+                updatedFilm.setGenres(genres);
+            }
+        } while (!films.replace(film.getId(), storedFilm, updatedFilm));
+
+        synchronized (filterIndex) {
+            filterIndex.put(films.get(film.getId()));
+        }
+        filmVersions.bump(film.getId());
 
         log.info("Запись фильма изменена успешно. id:" + film.getId());
-        return filmFromBase;
+        return FilmCache.copyOf(updatedFilm);
+    }
+
+    private boolean matchesDuration(Film film, FilmFilter filter) {
+        if (filter.getMinDuration() == null && filter.getMaxDuration() == null) {
+            return true;
+        }
+
+        if (film.getDuration() == null) {
+            return false;
+        }
+
+        return (filter.getMinDuration() == null || film.getDuration() >= filter.getMinDuration()) &&
+                (filter.getMaxDuration() == null || film.getDuration() <= filter.getMaxDuration());
     }
 
-    public HashMap<Long, Set<Long>> getLikeLists() {
-        return likeLists;
+    private void referenceValidations(Film film) throws FilmValidationException, RecordNotFoundException {
+        if (film.getMpa() == null) {
+            throw new FilmValidationException("Рейтинг фильма должен быть указан");
+        }
+
+        getMPAById(film.getMpa().getId());
+
+        if (film.getGenres() != null) {
+            resolveGenres(film.getGenres());
+        }
+    }
+
+    private List<Genre> resolveGenres(List<Genre> genres) throws FilmValidationException, RecordNotFoundException {
+        List<Genre> resolvedGenres = new ArrayList<>(genres.size());
+
+        for (Genre genre : genres) {
+            if (genre == null) {
+                throw new FilmValidationException("Жанр фильма не может быть пустым");
+            }
+
+            resolvedGenres.add(getGenreById(genre.getId()));
+        }
+
+        return resolvedGenres;
     }
 
     private void filmValidations(Film film) throws FilmValidationException {
@@ -88,33 +240,46 @@ public class InMemoryFilmStorage implements FilmStorage {
 
     }
 
-    private void assignNewId(Film film) {
-        if (films != null) {
-            film.setId((long) (films.size() + 1));
-        }
-
+    public Film getFilmById(Long id) throws RecordNotFoundException {
+        return FilmCache.copyOf(getStoredFilm(id));
     }
 
-    public Film getFilmById(Long id) throws RecordNotFoundException {
-        Optional<Film> possibleFilm = films.stream()
-                .filter(film1 -> film1.getId().equals(id))
-                .findFirst();
+    private Film getStoredFilm(Long id) throws RecordNotFoundException {
+        Film film = id != null ? films.get(id) : null;
 
-        if (possibleFilm.isEmpty()) {
+        if (film == null) {
             throw new RecordNotFoundException("Фильм с ID " + id + " не найден.");
         }
 
-        return possibleFilm.get();
+        return film;
+    }
+
+    @Override
+    public String getFilmVersion(Long id) {
+        return filmVersions.get(id);
+    }
+
+    @Override
+    public String getReferenceDataVersion() {
+        return REFERENCE_DATA_VERSION;
     }
 
     @Override
     public Set<Long> getLikeListForFilm(Long filmId) {
-        if (!getLikeLists().containsKey(filmId)) {
-            getLikeLists().put(filmId, new HashSet<>());
-        }
+        return Collections.unmodifiableSet(likeLists.getOrDefault(filmId, Collections.emptySet()));
+    }
 
-        return getLikeLists().get(filmId);
+    @Override
+    public Map<Long, Set<Long>> getAllLikeLists() {
+        Map<Long, Set<Long>> likeListsCopy = new HashMap<>();
+
+        likeLists.forEach((filmId, userIds) -> {
+            if (!userIds.isEmpty()) {
+                likeListsCopy.put(filmId, new HashSet<>(userIds));
+            }
+        });
 
+        return likeListsCopy;
     }
 
     public LocalDate getLowThresholdDate() {
@@ -123,46 +288,143 @@ public class InMemoryFilmStorage implements FilmStorage {
 
     @Override
     public void createLikeFilmByUser(Long filmId, Long userId) {
-        if (!getLikeLists().containsKey(filmId)) {
-            getLikeLists().put(filmId, new HashSet<>());
+        getStoredFilm(filmId);
+
+        if (likeLists.computeIfAbsent(filmId, id -> ConcurrentHashMap.newKeySet()).add(userId)) {
+            changeLikeCount(filmId, 1);
         }
-        getLikeListForFilm(filmId).add(userId);
     }
 
     @Override
     public void deleteLikeFilmByUser(Long filmId, Long userId) {
-        if (getLikeLists().containsKey(filmId)) {
-            getLikeListForFilm(filmId).remove(userId);
+        Set<Long> likeList = likeLists.get(filmId);
+
+        if (likeList != null && likeList.remove(userId)) {
+            changeLikeCount(filmId, -1);
         }
     }
 
     @Override
     public int getFilmLikeStorageCount(Long filmId) {
-        if (getLikeLists().containsKey(filmId)) {
-            return getLikeListForFilm(filmId).size();
-        }
+        return likeCounts.getOrDefault(filmId, 0);
+    }
 
+    @Override
+    public int rebuildLikeCounts() {
         return 0;
     }
 
+    @Override
+    public Set<Long> getExistingFilmIds(Collection<Long> ids) {
+        Set<Long> existingIds = new HashSet<>();
+
+        ids.forEach(id -> {
+            if (id != null && films.containsKey(id)) {
+                existingIds.add(id);
+            }
+        });
+
+        return existingIds;
+    }
+
+    @Override
+    public void applyLikeEvents(List<LikeEvent> events) {
+        events.forEach(event -> {
+            if (event.getOperation() == LikeOperation.UNLIKE) {
+                deleteLikeFilmByUser(event.getFilmId(), event.getUserId());
+            } else {
+                createLikeFilmByUser(event.getFilmId(), event.getUserId());
+            }
+        });
+    }
+
+    @Override
+    public List<Film> getPopular(Integer count) {
+        int limit = count != null ? count : Integer.MAX_VALUE;
+        Set<Long> seenFilmIds = new HashSet<>();
+        List<Film> popularFilms = new ArrayList<>();
+
+        for (PopularityEntry entry : popularityRanking) {
+            if (popularFilms.size() >= limit) {
+                break;
+            }
+
+            Film film = films.get(entry.filmId);
+
+            if (film != null && seenFilmIds.add(entry.filmId)) {
+                popularFilms.add(FilmCache.copyOf(film));
+            }
+        }
+
+        return popularFilms;
+    }
+
     @Override
     public List<Genre> getAllGenres() {
-        return null;
+        List<Genre> genres = new ArrayList<>();
+
+        for (int i = 0; i < GENRE_NAMES.size(); i++) {
+            genres.add(Genre.builder().id((long) (i + 1)).name(GENRE_NAMES.get(i)).build());
+        }
+
+        return genres;
     }
 
     @Override
     public List<MPA> getAllMPAs() {
-        return null;
+        List<MPA> mpas = new ArrayList<>();
+
+        for (int i = 0; i < MPA_NAMES.size(); i++) {
+            mpas.add(MPA.builder().id((long) (i + 1)).name(MPA_NAMES.get(i)).build());
+        }
+
+        return mpas;
     }
 
     @Override
     public Genre getGenreById(Long id) {
-        return null;
+        if (id == null || id < 1 || id > GENRE_NAMES.size()) {
+            throw new RecordNotFoundException("Жанр с ID " + id + " не найден.");
+        }
+
+        return Genre.builder().id(id).name(GENRE_NAMES.get(id.intValue() - 1)).build();
     }
 
     @Override
     public MPA getMPAById(Long id) {
-        return null;
+        if (id == null || id < 1 || id > MPA_NAMES.size()) {
+            throw new RecordNotFoundException("Рейтинг с ID " + id + " не найден.");
+        }
+
+        return MPA.builder().id(id).name(MPA_NAMES.get(id.intValue() - 1)).build();
+    }
+
+    private void changeLikeCount(Long filmId, int delta) {
+        likeCounts.compute(filmId, (id, oldCount) -> {
+            int newCount = (oldCount != null ? oldCount : 0) + delta;
+
+            popularityRanking.add(new PopularityEntry(newCount, id));
+            if (oldCount != null && oldCount != newCount) {
+                popularityRanking.remove(new PopularityEntry(oldCount, id));
+            }
+
+            return newCount;
+        });
+    }
+
+    private static final class PopularityEntry {
+        private static final Comparator<PopularityEntry> COMPARATOR =
+                Comparator.<PopularityEntry>comparingInt(entry -> entry.likeCount).reversed()
+                        .thenComparingLong(entry -> entry.filmId);
+
+        private final int likeCount;
+        private final long filmId;
+
+        private PopularityEntry(int likeCount, long filmId) {
+            this.likeCount = likeCount;
+            this.filmId = filmId;
+        }
+
     }
 
 }
@@ -1,8 +1,8 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.comparator.UserComparators;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserStorageException;
 import ru.yandex.practicum.filmorate.exception.UserValidationException;
@@ -10,29 +10,57 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Component("InMemoryUserStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory")
 public class InMemoryUserStorage implements UserStorage {
-    private Set<User> users = new HashSet<>();
-    private HashMap<Long, Set<User>> friendLists = new HashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, NavigableSet<Long>> friendIds = new ConcurrentHashMap<>();
 
     @Override
     public Set<User> getAll() {
-        return users;
+        Set<User> allUsers = new LinkedHashSet<>();
+
+        users.values().forEach(user -> allUsers.add(copyOf(user)));
+
+        return allUsers;
+    }
+
+    @Override
+    public List<User> getPage(Long afterId, int limit) {
+        List<User> page = new ArrayList<>();
+
+        for (User user : users.tailMap(afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+
+            page.add(copyOf(user));
+        }
+
+        return page;
     }
 
     @Override
     public User addNew(User user) throws UserStorageException, UserValidationException {
         userValidations(user);
 
-        if (users.contains(user)) {
+        if (user.getId() != null && user.equals(users.get(user.getId()))) {
             throw new UserStorageException("Такой пользователь уже добавлен");
         }
 
-        assignNewId(user);
-        users.add(user);
-        friendLists.put(user.getId(), new HashSet<>());
+        user.setId(idSequence.incrementAndGet());
+        friendIds.put(user.getId(), new ConcurrentSkipListSet<>());
+        users.put(user.getId(), copyOf(user));
 
         log.info("Новый пользователь добавлен успешно. id:" + user.getId());
 
@@ -41,57 +69,133 @@ public class InMemoryUserStorage implements UserStorage {
 
     @Override
     public User change(User user) throws RecordNotFoundException, UserValidationException {
-        User userFromBase = getUserById(user.getId());
-
+        getStoredUser(user.getId());
         userValidations(user);
-        userFromBase.setName(user.getName());
-        userFromBase.setLogin(user.getLogin());
-        userFromBase.setEmail(user.getEmail());
-        userFromBase.setBirthday(user.getBirthday());
 
-        log.info("Запись пользователя изменен успешно. id:" + user.getId());
+        User storedUser;
+        User updatedUser;
 
-        return userFromBase;
-    }
+        do {
+            storedUser = getStoredUser(user.getId());
+            updatedUser = copyOf(storedUser);
+            updatedUser.setName(user.getName());
+            updatedUser.setLogin(user.getLogin());
+            updatedUser.setEmail(user.getEmail());
+            updatedUser.setBirthday(user.getBirthday());
+        } while (!users.replace(user.getId(), storedUser, updatedUser));
 
-    public HashMap<Long, Set<User>> getFriendLists() {
-        return friendLists;
+        log.info("Запись пользователя изменен успешно. id:" + user.getId());
+
+        return copyOf(updatedUser);
     }
 
     @Override
     public void addToFriends(User userFirst, User userSecond) {
-        getFriendLists().get(userFirst.getId()).add(userSecond);
+        friendIds.computeIfAbsent(userFirst.getId(), id -> new ConcurrentSkipListSet<>())
+                .add(userSecond.getId());
     }
 
     @Override
-    public void removeFromFriends(User userFirst, User userSecond) {
-        if (getFriendLists().containsKey(userFirst.getId())) {
-            getFriendLists().get(userFirst.getId()).remove(userSecond);
+    public void removeFromFriends(User userFirst, User userSecond,
+                                  BiConsumer<Long, Long> removedFriendshipConsumer) {
+        Set<Long> firstUserFriendIds = friendIds.get(userFirst.getId());
+        Set<Long> secondUserFriendIds = friendIds.get(userSecond.getId());
+
+        if (firstUserFriendIds != null && firstUserFriendIds.remove(userSecond.getId())) {
+            removedFriendshipConsumer.accept(userFirst.getId(), userSecond.getId());
         }
 
-        if (getFriendLists().containsKey(userSecond.getId())) {
-            getFriendLists().get(userSecond.getId()).remove(userFirst);
+        if (secondUserFriendIds != null && secondUserFriendIds.remove(userFirst.getId())) {
+            removedFriendshipConsumer.accept(userSecond.getId(), userFirst.getId());
         }
 
     }
 
     @Override
     public ArrayList<User> getUserFriendList(Long userId) {
-        if (getFriendLists().containsKey(userId)) {
-            ArrayList<User> sortedList = new ArrayList<>(getFriendLists().get(userId));
-            sortedList.sort(UserComparators.compareUsersById);
+        ArrayList<User> friendList = new ArrayList<>();
+
+        for (Long friendId : friendIds.getOrDefault(userId, Collections.emptyNavigableSet())) {
+            User friend = users.get(friendId);
+
+            if (friend != null) {
+                friendList.add(copyOf(friend));
+            }
+        }
+
+        return friendList;
+    }
+
+    @Override
+    public List<User> getUserFriendListPage(Long userId, Long afterId, int limit) {
+        NavigableSet<Long> userFriendIds = friendIds.getOrDefault(userId, Collections.emptyNavigableSet());
+        List<User> page = new ArrayList<>();
 
-            return sortedList;
+        for (Long friendId : userFriendIds.tailSet(afterId, false)) {
+            if (page.size() >= limit) {
+                break;
+            }
 
-        } else return new ArrayList<>();
+            User friend = users.get(friendId);
+
+            if (friend != null) {
+                page.add(copyOf(friend));
+            }
+        }
 
+        return page;
     }
 
-    private void assignNewId(User user) {
-        if (users != null) {
-            user.setId((long) (users.size() + 1));
+    @Override
+    public List<User> getCommonFriendList(Long userId, Long otherUserId) {
+        List<User> commonFriends = new ArrayList<>();
+        Iterator<Long> firstIterator =
+                friendIds.getOrDefault(userId, Collections.emptyNavigableSet()).iterator();
+        Iterator<Long> secondIterator =
+                friendIds.getOrDefault(otherUserId, Collections.emptyNavigableSet()).iterator();
+        Long firstId = firstIterator.hasNext() ? firstIterator.next() : null;
+        Long secondId = secondIterator.hasNext() ? secondIterator.next() : null;
+
+        while (firstId != null && secondId != null) {
+            int comparison = firstId.compareTo(secondId);
+
+            if (comparison == 0) {
+                User friend = users.get(firstId);
+
+                if (friend != null) {
+                    commonFriends.add(copyOf(friend));
+                }
+            }
+
+            if (comparison <= 0) {
+                firstId = firstIterator.hasNext() ? firstIterator.next() : null;
+            }
+
+            if (comparison >= 0) {
+                secondId = secondIterator.hasNext() ? secondIterator.next() : null;
+            }
         }
 
+        return commonFriends;
+    }
+
+    @Override
+    public void streamFriendships(BiConsumer<Long, Long> consumer) {
+        friendIds.forEach((userId, userFriendIds) ->
+                userFriendIds.forEach(friendId -> consumer.accept(userId, friendId)));
+    }
+
+    @Override
+    public Set<Long> getExistingUserIds(Collection<Long> ids) {
+        Set<Long> existingIds = new HashSet<>();
+
+        ids.forEach(id -> {
+            if (id != null && users.containsKey(id)) {
+                existingIds.add(id);
+            }
+        });
+
+        return existingIds;
     }
 
     private void userValidations(User user) throws RecordNotFoundException {
@@ -124,22 +228,32 @@ public class InMemoryUserStorage implements UserStorage {
     }
 
     public User getUserById(Long id) throws RecordNotFoundException {
-        Optional<User> possibleFilm = users.stream()
-                .filter(user1 -> user1.getId().equals(id))
-                .findFirst();
+        return copyOf(getStoredUser(id));
+    }
 
-        if (possibleFilm.isEmpty()) {
+    private User getStoredUser(Long id) throws RecordNotFoundException {
+        User user = id != null ? users.get(id) : null;
+
+        if (user == null) {
             throw new RecordNotFoundException("Пользователь с ID " + id + " не найден.");
 
         }
 
-        return possibleFilm.get();
+        return user;
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .login(user.getLogin())
+                .name(user.getName())
+                .birthday(user.getBirthday())
+                .build();
     }
 
     public boolean existingUser(Long id) throws RecordNotFoundException {
-        if (users.stream()
-                .filter(user1 -> user1.getId().equals(id))
-                .findFirst().orElse(null) != null) {
+        if (id != null && users.containsKey(id)) {
             return true;
         } else {
             throw new RecordNotFoundException("Пользователь с ID " + id + " не найден.");
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final JdbcTemplate jdbcTemplate;
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void preload() {
+        getSnapshot();
+    }
+
+    public void invalidate() {
+        snapshot = null;
+        version.incrementAndGet();
+        log.info("Кэш справочников жанров и рейтингов сброшен");
+    }
+
+    public String getVersion() {
+        return epoch + "." + version.get();
+    }
+
+    public List<Genre> getAllGenres() {
+        return getSnapshot().genres.values().stream()
+                .map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    public List<MPA> getAllMPAs() {
+        return getSnapshot().mpas.values().stream()
+                .map(this::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Genre> findGenreById(Long id) {
+        return Optional.ofNullable(getSnapshot().genres.get(id)).map(this::copyOf);
+    }
+
+    public Optional<MPA> findMPAById(Long id) {
+        return Optional.ofNullable(getSnapshot().mpas.get(id)).map(this::copyOf);
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+
+        return current;
+    }
+
+    private Snapshot load() {
+        Map<Long, Genre> genres = new LinkedHashMap<>();
+        Map<Long, MPA> mpas = new LinkedHashMap<>();
+
+        jdbcTemplate.query("SELECT ID, NAME FROM GENRES ORDER BY ID", resultSet -> {
+            genres.put(resultSet.getLong("ID"), Genre.builder()
+                    .id(resultSet.getLong("ID"))
+                    .name(resultSet.getString("NAME"))
+                    .build());
+        });
+
+        jdbcTemplate.query("SELECT ID, NAME FROM MPAS ORDER BY ID", resultSet -> {
+            mpas.put(resultSet.getLong("ID"), MPA.builder()
+                    .id(resultSet.getLong("ID"))
+                    .name(resultSet.getString("NAME"))
+                    .build());
+        });
+
+        log.info("Кэш справочников загружен. Жанров: " + genres.size() + ", рейтингов: " + mpas.size());
+
+        return new Snapshot(Collections.unmodifiableMap(genres), Collections.unmodifiableMap(mpas));
+    }
+
+    private Genre copyOf(Genre genre) {
+        return Genre.builder()
+                .id(genre.getId())
+                .name(genre.getName())
+                .build();
+    }
+
+    private MPA copyOf(MPA mpa) {
+        return MPA.builder()
+                .id(mpa.getId())
+                .name(mpa.getName())
+                .build();
+    }
+
+    private static final class Snapshot {
+        private final Map<Long, Genre> genres;
+        private final Map<Long, MPA> mpas;
+
+        private Snapshot(Map<Long, Genre> genres, Map<Long, MPA> mpas) {
+            this.genres = genres;
+            this.mpas = mpas;
+        }
+
+    }
+
+}
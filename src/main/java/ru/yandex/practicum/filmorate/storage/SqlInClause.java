@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+final class SqlInClause {
+    static final int CHUNK_SIZE = 500;
+
+    private SqlInClause() {
+    }
+
+    static String placeholders(int size) {
+        return "(" + String.join(", ", Collections.nCopies(size, "?")) + ")";
+    }
+
+    static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+
+        for (int chunkStart = 0; chunkStart < idList.size(); chunkStart += CHUNK_SIZE) {
+            chunks.add(idList.subList(chunkStart, Math.min(chunkStart + CHUNK_SIZE, idList.size())));
+        }
+
+        return chunks;
+    }
+
+}
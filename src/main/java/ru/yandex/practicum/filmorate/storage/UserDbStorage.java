@@ -1,24 +1,32 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Component("UserDbStorage")
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "db", matchIfMissing = true)
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
+    static final int EXPORT_FETCH_SIZE = 1000;
+    static final int UNCONFIRMED_STATUS = 0;
+    static final int CONFIRMED_STATUS = 1;
 
     public UserDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
@@ -26,12 +34,20 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public Set<User> getAll() {
-        String sqlQuery = "SELECT id, login, name, birthday, email FROM USERS";
+        String sqlQuery = "SELECT id, login, name, birthday, email FROM USERS ORDER BY id";
 
-        return new HashSet<>(jdbcTemplate.query(sqlQuery, this::mapRowToUser));
+        return new LinkedHashSet<>(jdbcTemplate.query(sqlQuery, this::mapRowToUser));
     }
 
     @Override
+    public List<User> getPage(Long afterId, int limit) {
+        String sqlQuery = "SELECT id, login, name, birthday, email FROM USERS WHERE id > ? ORDER BY id LIMIT ?";
+
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId, limit);
+    }
+
+    @Override
+    @Transactional
     public User addNew(User user) {
         userValidations(user);
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
@@ -41,9 +57,7 @@ public class UserDbStorage implements UserStorage {
 
         user.setId(userRecordId);
 
-        if (getUserFriendlistId(user.getId()) < 0) {
-            createUserFriendList(user.getId());
-        }
+        createUserFriendList(user.getId());
 
         log.info("Новый пользователь добавлен успешно. id:" + user.getId());
 
@@ -81,14 +95,19 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void addToFriends(User userFirst, User userSecond) {
         createUserFriendListEntry(userFirst.getId(), userSecond.getId());
 
     }
 
     @Override
-    public void removeFromFriends(User userFirst, User userSecond) {
-        deleteUserFriendlistEntry(userFirst.getId(), userSecond.getId());
+    @Transactional
+    public void removeFromFriends(User userFirst, User userSecond,
+                                  BiConsumer<Long, Long> removedFriendshipConsumer) {
+        if (deleteUserFriendlistEntry(userFirst.getId(), userSecond.getId())) {
+            removedFriendshipConsumer.accept(userFirst.getId(), userSecond.getId());
+        }
     }
 
     @Override
@@ -98,7 +117,8 @@ public class UserDbStorage implements UserStorage {
         String sqlQuery = "SELECT u.ID, u.EMAIL, u.LOGIN, u.NAME, u.BIRTHDAY FROM USERS u " +
                 "INNER JOIN USER_FRIENDLIST_ENTRIES ufe ON ufe.ASSOCIATED_USER_ID = u.ID " +
                 "INNER JOIN USER_FRIENDLISTS uf ON ufe.FRIENDLIST_ID = uf.ID " +
-                "WHERE uf.USER_ID = ?";
+                "WHERE uf.USER_ID = ? " +
+                "ORDER BY u.ID";
 
         SqlRowSet userRows = jdbcTemplate.queryForRowSet(sqlQuery, userId);
 
@@ -117,6 +137,33 @@ public class UserDbStorage implements UserStorage {
         return userList;
     }
 
+    @Override
+    public List<User> getUserFriendListPage(Long userId, Long afterId, int limit) {
+        String sqlQuery = "SELECT u.ID, u.LOGIN, u.NAME, u.BIRTHDAY, u.EMAIL FROM USER_FRIENDLISTS uf " +
+                "INNER JOIN USER_FRIENDLIST_ENTRIES ufe ON ufe.FRIENDLIST_ID = uf.ID " +
+                "INNER JOIN USERS u ON u.ID = ufe.ASSOCIATED_USER_ID " +
+                "WHERE uf.USER_ID = ? AND ufe.ASSOCIATED_USER_ID > ? " +
+                "ORDER BY ufe.ASSOCIATED_USER_ID " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, userId, afterId, limit);
+    }
+
+    @Override
+    public List<User> getCommonFriendList(Long userId, Long otherUserId) {
+        String sqlQuery = "SELECT u.ID, u.EMAIL, u.LOGIN, u.NAME, u.BIRTHDAY " +
+                "FROM USER_FRIENDLISTS uf " +
+                "INNER JOIN USER_FRIENDLIST_ENTRIES ufe ON ufe.FRIENDLIST_ID = uf.ID " +
+                "INNER JOIN USER_FRIENDLISTS other_uf ON other_uf.USER_ID = ? " +
+                "INNER JOIN USER_FRIENDLIST_ENTRIES other_ufe ON other_ufe.FRIENDLIST_ID = other_uf.ID " +
+                "AND other_ufe.ASSOCIATED_USER_ID = ufe.ASSOCIATED_USER_ID " +
+                "INNER JOIN USERS u ON u.ID = ufe.ASSOCIATED_USER_ID " +
+                "WHERE uf.USER_ID = ? " +
+                "ORDER BY u.ID";
+
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, otherUserId, userId);
+    }
+
     @Override
     public boolean existingUser(Long id) throws RecordNotFoundException {
         String sqlQuery = "SELECT EXISTS(select ID from USERS where id = ?)";
@@ -130,6 +177,36 @@ public class UserDbStorage implements UserStorage {
 
     }
 
+    @Override
+    public void streamFriendships(BiConsumer<Long, Long> consumer) {
+        String sqlQuery = "SELECT uf.USER_ID, ufe.ASSOCIATED_USER_ID FROM USER_FRIENDLIST_ENTRIES ufe " +
+                "INNER JOIN USER_FRIENDLISTS uf ON ufe.FRIENDLIST_ID = uf.ID";
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+
+            return statement;
+        }, resultSet -> {
+            consumer.accept(resultSet.getLong("USER_ID"), resultSet.getLong("ASSOCIATED_USER_ID"));
+        });
+    }
+
+    @Override
+    public Set<Long> getExistingUserIds(Collection<Long> ids) {
+        Set<Long> existingIds = new HashSet<>();
+
+        for (List<Long> chunk : SqlInClause.chunks(ids)) {
+            String sqlQuery = "SELECT ID FROM USERS WHERE ID IN " + SqlInClause.placeholders(chunk.size());
+
+            existingIds.addAll(jdbcTemplate.queryForList(sqlQuery, Long.class, chunk.toArray()));
+        }
+
+        return existingIds;
+    }
+
     private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
         return User.builder()
                 .id(resultSet.getLong("id"))
@@ -169,112 +246,56 @@ public class UserDbStorage implements UserStorage {
 
     }
 
-    private int getUserFriendlistId(Long userId) {
-        String sqlQuery = "SELECT ID FROM USER_FRIENDLISTS WHERE USER_ID = ?";
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet(sqlQuery, userId);
-
-        if (userRows.next()) {
-            return userRows.getInt("id");
-        }
+    private void createUserFriendList(Long userId) {
+        String sqlQuery = "MERGE INTO USER_FRIENDLISTS (USER_ID) KEY (USER_ID) VALUES (?);";
 
-        return -1;
+        jdbcTemplate.update(sqlQuery, userId);
     }
 
-    private Long createUserFriendList(Long userId) {
-        Map<String, Object> friendlistMap = new HashMap<>();
-        friendlistMap.put("USER_ID", userId);
+    private void lockUserFriendLists(Long userId, Long associatedUserId) {
+        String sqlQuery = "SELECT ID FROM USER_FRIENDLISTS WHERE USER_ID IN (?, ?) ORDER BY USER_ID FOR UPDATE";
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("USER_FRIENDLISTS")
-                .usingGeneratedKeyColumns("id");
-
-        return simpleJdbcInsert.executeAndReturnKey(friendlistMap).longValue();
+        jdbcTemplate.queryForList(sqlQuery, Long.class, userId, associatedUserId);
     }
 
-    private long createUserFriendListEntry(Long userId, Long associatedUserId) {
-        long userFriendListEntryId = getUserFriendListEntry(userId, associatedUserId);
-
-
-        if (userFriendListEntryId < 0) {
-            long reversedUserFriendListEntryId = getUserFriendListEntry(associatedUserId, userId);
-            String friendShipStatus = "Неподтвердженная";
-
-            if (reversedUserFriendListEntryId > 0) {
-                friendShipStatus = "Подтвержденная";
-            }
-
-            long userFriendListid = getUserFriendlistId(userId);
-
-            if (userFriendListid < 0) {
-                userFriendListid = createUserFriendList(userId);
-            }
-
-            Map<String, Object> friendlistEntryMap = new HashMap<>();
-            friendlistEntryMap.put("FRIENDLIST_ID", userFriendListid);
-            friendlistEntryMap.put("ASSOCIATED_USER_ID", associatedUserId);
-            friendlistEntryMap.put("STATUS", friendShipStatus);
-
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                    .withTableName("USER_FRIENDLIST_ENTRIES")
-                    .usingGeneratedKeyColumns("id");
-
-            Long friendListEntry = simpleJdbcInsert.executeAndReturnKey(friendlistEntryMap).longValue();
-            if (friendListEntry > 0) {
-                updateUserFriendListEntry(reversedUserFriendListEntryId, friendShipStatus);
-                return friendListEntry;
-            }
+    private void createUserFriendListEntry(Long userId, Long associatedUserId) {
+        lockUserFriendLists(userId, associatedUserId);
 
-        }
+        String sqlQuery = "MERGE INTO USER_FRIENDLIST_ENTRIES (FRIENDLIST_ID, ASSOCIATED_USER_ID, STATUS) " +
+                "KEY (FRIENDLIST_ID, ASSOCIATED_USER_ID) " +
+                "SELECT uf.ID, ?, CASE WHEN EXISTS (SELECT 1 FROM USER_FRIENDLIST_ENTRIES rufe " +
+                "INNER JOIN USER_FRIENDLISTS ruf ON rufe.FRIENDLIST_ID = ruf.ID " +
+                "WHERE ruf.USER_ID = ? AND rufe.ASSOCIATED_USER_ID = ?) THEN ? ELSE ? END " +
+                "FROM USER_FRIENDLISTS uf WHERE uf.USER_ID = ?";
 
-        return -1L;
+        jdbcTemplate.update(sqlQuery, associatedUserId, associatedUserId, userId,
+                CONFIRMED_STATUS, UNCONFIRMED_STATUS, userId);
 
+        updateReversedEntryStatus(userId, associatedUserId, CONFIRMED_STATUS);
     }
 
-    private void updateUserFriendListEntry(Long userFriendListEntryId, String status) {
-        String sqlQuery = "UPDATE USER_FRIENDLIST_ENTRIES SET STATUS = ? WHERE id = ?;";
-
-        jdbcTemplate.update(sqlQuery,
-                status,
-                userFriendListEntryId);
-    }
-
-    private void deleteUserFriendlistEntry(Long userId, Long associatedUserId) {
-        long userFriendListEntryId = getUserFriendListEntry(userId, associatedUserId);
-
-        if (userFriendListEntryId > 0) {
-            long userFriendListid = getUserFriendlistId(userId);
-
-            if (userFriendListid < 0) {
-                userFriendListid = createUserFriendList(userId);
+    private boolean deleteUserFriendlistEntry(Long userId, Long associatedUserId) {
+        lockUserFriendLists(userId, associatedUserId);
 
-            }
+        String sqlQuery = "DELETE FROM USER_FRIENDLIST_ENTRIES " +
+                "WHERE FRIENDLIST_ID = (SELECT ID FROM USER_FRIENDLISTS WHERE USER_ID = ?) " +
+                "AND ASSOCIATED_USER_ID = ?;";
 
-            String sqlQueryForFriendList =
-                    "DELETE FROM USER_FRIENDLIST_ENTRIES ufe1 WHERE ufe1.ID = " +
-                            "(SELECT ufe.ID FROM USER_FRIENDLIST_ENTRIES ufe " +
-                            "INNER JOIN USER_FRIENDLISTS uf ON ufe.FRIENDLIST_ID = uf.ID " +
-                            "INNER JOIN USERS u ON uf.USER_ID = u.ID " +
-                            "WHERE u.ID = ? AND ufe.ASSOCIATED_USER_ID = ?);";
+        if (jdbcTemplate.update(sqlQuery, userId, associatedUserId) > 0) {
+            updateReversedEntryStatus(userId, associatedUserId, UNCONFIRMED_STATUS);
 
-            jdbcTemplate.update(sqlQueryForFriendList,
-                    userFriendListid, associatedUserId);
+            return true;
         }
 
+        return false;
     }
 
-    private long getUserFriendListEntry(Long userId, Long associatedUserId) {
-        String sqlQuery = "SELECT ufe.ID FROM USER_FRIENDLIST_ENTRIES ufe " +
-                "INNER JOIN USER_FRIENDLISTS uf ON ufe.FRIENDLIST_ID = uf.ID " +
-                "INNER JOIN USERS u ON uf.USER_ID = u.ID " +
-                "WHERE u.ID = ? AND ufe.ASSOCIATED_USER_ID = ?";
-
-        try {
-            return jdbcTemplate.queryForObject(sqlQuery, Long.class, userId, associatedUserId);
-
-        } catch (Exception e) {
-            return -1;
-        }
+    private void updateReversedEntryStatus(Long userId, Long associatedUserId, int status) {
+        String sqlQuery = "UPDATE USER_FRIENDLIST_ENTRIES SET STATUS = ? " +
+                "WHERE FRIENDLIST_ID = (SELECT ID FROM USER_FRIENDLISTS WHERE USER_ID = ?) " +
+                "AND ASSOCIATED_USER_ID = ? AND STATUS <> ?";
 
+        jdbcTemplate.update(sqlQuery, status, associatedUserId, userId, status);
     }
 
 }
\ No newline at end of file
@@ -2,12 +2,16 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 public interface UserStorage {
     Set<User> getAll();
 
+    List<User> getPage(Long afterId, int limit);
+
     User addNew(User user);
 
     User change(User user);
@@ -16,9 +20,17 @@ public interface UserStorage {
 
     void addToFriends(User userFirst, User userSecond);
 
-    void removeFromFriends(User userFirst, User userSecond);
+    void removeFromFriends(User userFirst, User userSecond, BiConsumer<Long, Long> removedFriendshipConsumer);
 
     List<User> getUserFriendList(Long userId);
 
+    List<User> getUserFriendListPage(Long userId, Long afterId, int limit);
+
+    List<User> getCommonFriendList(Long userId, Long otherUserId);
+
+    void streamFriendships(BiConsumer<Long, Long> consumer);
+
     boolean existingUser(Long id);
+
+    Set<Long> getExistingUserIds(Collection<Long> ids);
 }
@@ -0,0 +1,31 @@
+DELETE FROM film_likes fl
+WHERE EXISTS (SELECT 1 FROM film_likes d
+        WHERE d.film_id = fl.film_id AND d.user_id = fl.user_id AND d.id < fl.id);
+
+DELETE FROM genre_assignments ga
+WHERE EXISTS (SELECT 1 FROM genre_assignments d
+        WHERE d.film_id = ga.film_id AND d.genre_id = ga.genre_id AND d.id < ga.id);
+
+DELETE FROM MPA_assignments ma
+WHERE EXISTS (SELECT 1 FROM MPA_assignments d
+        WHERE d.film_id = ma.film_id AND d.id < ma.id);
+
+DELETE FROM user_friendlist_entries ufe
+WHERE EXISTS (SELECT 1 FROM user_friendlist_entries d
+        WHERE d.friendlist_id = ufe.friendlist_id AND d.associated_user_id = ufe.associated_user_id
+        AND d.id < ufe.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_film_likes_film_user
+ON film_likes (film_id, user_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_genre_assignments_film_genre
+ON genre_assignments (film_id, genre_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_mpa_assignments_film
+ON MPA_assignments (film_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_friendlists_user
+ON user_friendlists (user_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_friendlist_entries_friendlist_user
+ON user_friendlist_entries (friendlist_id, associated_user_id);
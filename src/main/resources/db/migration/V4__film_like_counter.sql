@@ -0,0 +1,8 @@
+ALTER TABLE films
+ADD COLUMN IF NOT EXISTS like_count integer NOT NULL DEFAULT 0;
+
+UPDATE films f
+SET like_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id);
+
+CREATE INDEX IF NOT EXISTS idx_films_like_count
+ON films (like_count DESC, id);
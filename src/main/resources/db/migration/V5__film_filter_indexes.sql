@@ -0,0 +1,11 @@
+CREATE INDEX IF NOT EXISTS idx_films_release_date
+ON films (release_date, id);
+
+CREATE INDEX IF NOT EXISTS idx_films_duration
+ON films (duration_min, id);
+
+CREATE INDEX IF NOT EXISTS idx_genre_assignments_genre_film
+ON genre_assignments (genre_id, film_id);
+
+CREATE INDEX IF NOT EXISTS idx_mpa_assignments_mpa_film
+ON MPA_assignments (mpa_id, film_id);
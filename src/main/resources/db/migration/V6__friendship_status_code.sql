@@ -0,0 +1,12 @@
+ALTER TABLE user_friendlist_entries
+ADD COLUMN IF NOT EXISTS status_code tinyint NOT NULL DEFAULT 0;
+
+UPDATE user_friendlist_entries
+SET status_code = 1
+WHERE status = 'Подтвержденная';
+
+ALTER TABLE user_friendlist_entries
+DROP COLUMN status;
+
+ALTER TABLE user_friendlist_entries
+ALTER COLUMN status_code RENAME TO status;
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmVersions;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=benchmark-logback.xml")
+public class FilmBenchmark {
+    private static final int USER_COUNT = 1000;
+    private static final int LIKES_PER_FILM = 10;
+    private static final int POPULAR_COUNT = 10;
+
+    @Param({"memory", "db"})
+    private String storageType;
+    @Param({"1000", "10000"})
+    private int filmCount;
+
+    private BenchmarkDatabase database;
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+    private List<Long> filmIds;
+    private List<Long> userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserStorage userStorage;
+
+        if ("db".equals(storageType)) {
+            database = new BenchmarkDatabase();
+            userStorage = new UserDbStorage(database.getJdbcTemplate());
+            filmStorage = new FilmDbStorage(database.getJdbcTemplate(),
+                    new ReferenceDataCache(database.getJdbcTemplate()), new FilmCache(1000), new FilmVersions());
+        } else {
+            userStorage = new InMemoryUserStorage();
+            filmStorage = new InMemoryFilmStorage();
+        }
+
+        LikeWriteBuffer likeWriteBuffer = new LikeWriteBuffer(filmStorage, false, 500);
+
+        filmService = new FilmService(userStorage, filmStorage, new FilmSimilarityIndex(filmStorage, likeWriteBuffer),
+                new FilmSearchIndex(filmStorage), likeWriteBuffer);
+        userIds = new ArrayList<>();
+        filmIds = new ArrayList<>();
+
+        for (int i = 0; i < USER_COUNT; i++) {
+            userIds.add(userStorage.addNew(createUser(i)).getId());
+        }
+
+        List<Film> films = new ArrayList<>();
+
+        for (int i = 0; i < filmCount; i++) {
+            films.add(createFilm(i));
+        }
+
+        filmService.addNewBatch(films).forEach(result -> filmIds.add(result.getId()));
+
+        List<LikeEvent> likeEvents = new ArrayList<>();
+
+        for (Long filmId : filmIds) {
+            int likeCount = ThreadLocalRandom.current().nextInt(LIKES_PER_FILM * 2);
+
+            for (int i = 0; i < likeCount; i++) {
+                likeEvents.add(LikeEvent.builder()
+                        .filmId(filmId)
+                        .userId(randomId(userIds))
+                        .operation(LikeOperation.LIKE)
+                        .build());
+            }
+        }
+
+        filmService.applyLikeEvents(likeEvents);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public List<Film> topLikes() {
+        return filmService.topLikes(POPULAR_COUNT);
+    }
+
+    @Benchmark
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(randomId(filmIds));
+    }
+
+    @Benchmark
+    public void createLikeFilmByUser() {
+        filmStorage.createLikeFilmByUser(randomId(filmIds), randomId(userIds));
+    }
+
+    private static Long randomId(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static Film createFilm(int number) {
+        List<Genre> genres = new ArrayList<>();
+
+        genres.add(Genre.builder().id((long) (number % 6 + 1)).build());
+
+        return Film.builder()
+                .name("Фильм " + number)
+                .description("Описание " + number)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(number % 7000))
+                .duration(90 + number % 60)
+                .mpa(MPA.builder().id((long) (number % 5 + 1)).build())
+                .genres(genres)
+                .build();
+    }
+
+    private static User createUser(int number) {
+        return User.builder()
+                .login("user" + number)
+                .name("User " + number)
+                .email("user" + number + "@ya.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+}
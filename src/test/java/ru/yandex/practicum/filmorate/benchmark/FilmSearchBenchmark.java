@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=benchmark-logback.xml"})
+public class FilmSearchBenchmark {
+    private static final int SEARCH_LIMIT = 10;
+    private static final int VOCABULARY_SIZE = 50000;
+    private static final String[] COMMON_WORDS = {"фильм", "история", "love", "жизнь", "city", "ночь"};
+
+    @Param({"1000000"})
+    private int filmCount;
+
+    private FilmSearchIndex searchIndex;
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+
+        filmStorage = new InMemoryFilmStorage();
+
+        for (int i = 0; i < filmCount; i++) {
+            filmStorage.addNew(Film.builder()
+                    .name(randomText(random, 3))
+                    .description(randomText(random, 20))
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .mpa(MPA.builder().id(1L).build())
+                    .build());
+        }
+
+        searchIndex = new FilmSearchIndex(filmStorage);
+        searchIndex.rebuild();
+    }
+
+    @Benchmark
+    public List<Long> searchRareTerms() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return searchIndex.search(word(random.nextInt(VOCABULARY_SIZE)) + " " +
+                word(random.nextInt(VOCABULARY_SIZE)), SEARCH_LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> searchCommonTerm() {
+        return searchIndex.search(COMMON_WORDS[ThreadLocalRandom.current().nextInt(COMMON_WORDS.length)],
+                SEARCH_LIMIT);
+    }
+
+    @Benchmark
+    public void changeFilm() {
+        Film film = filmStorage.getFilmById(ThreadLocalRandom.current().nextLong(filmCount) + 1);
+
+        searchIndex.onFilmSaved(film);
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < words; i++) {
+            if (random.nextInt(10) == 0) {
+                text.append(COMMON_WORDS[random.nextInt(COMMON_WORDS.length)]);
+            } else {
+                text.append(word((int) Math.min(VOCABULARY_SIZE - 1, Math.abs(random.nextGaussian()) * VOCABULARY_SIZE / 3)));
+            }
+
+            text.append(' ');
+        }
+
+        return text.toString();
+    }
+
+    private static String word(int number) {
+        return (number % 2 == 0 ? "слово" : "word") + Integer.toString(number, Character.MAX_RADIX);
+    }
+
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlogback.configurationFile=benchmark-logback.xml"})
+public class FriendGraphBenchmark {
+    private static final int SUGGESTION_COUNT = 10;
+
+    @Param({"200000"})
+    private int userCount;
+    @Param({"10", "25"})
+    private int friendsPerUser;
+
+    private FriendGraphIndex friendGraphIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Random random = new Random(42);
+
+        for (long userId = 1; userId <= userCount; userId++) {
+            User user = User.builder().id(userId).build();
+
+            for (int i = 0; i < friendsPerUser; i++) {
+                userStorage.addToFriends(user, User.builder().id(randomFriendId(random, userId)).build());
+            }
+        }
+
+        friendGraphIndex = new FriendGraphIndex(userStorage);
+        friendGraphIndex.rebuild();
+    }
+
+    @Benchmark
+    public List<Long> getSuggestedUserIds() {
+        return friendGraphIndex.getSuggestedUserIds(randomUserId(), SUGGESTION_COUNT);
+    }
+
+    @Benchmark
+    public void addAndRemoveFriend() {
+        long userId = randomUserId();
+        long friendId = randomUserId();
+
+        friendGraphIndex.onFriendAdded(userId, friendId);
+        friendGraphIndex.onFriendRemoved(userId, friendId);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void rebuild() {
+        friendGraphIndex.rebuild();
+    }
+
+    private long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(userCount) + 1;
+    }
+
+    private long randomFriendId(Random random, long userId) {
+        long neighbourhood = Math.max(1, userCount / 100);
+        long friendId = userId + random.nextLong() % neighbourhood;
+
+        return Math.floorMod(friendId - 1, (long) userCount) + 1;
+    }
+
+}
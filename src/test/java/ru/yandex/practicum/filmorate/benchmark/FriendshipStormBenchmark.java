@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=benchmark-logback.xml")
+@Threads(8)
+public class FriendshipStormBenchmark {
+    @Param({"16", "1000"})
+    private int userCount;
+
+    private BenchmarkDatabase database;
+    private TransactionTemplate transactionTemplate;
+    private UserDbStorage userStorage;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        transactionTemplate = database.getTransactionTemplate();
+        userStorage = new UserDbStorage(database.getJdbcTemplate());
+        users = new ArrayList<>();
+
+        for (int i = 0; i < userCount; i++) {
+            users.add(userStorage.addNew(User.builder()
+                    .login("user" + i)
+                    .name("user" + i)
+                    .email("user" + i + "@ya.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void mutualFriendRequests() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstIndex = random.nextInt(userCount);
+        User first = users.get(firstIndex);
+        User second = users.get((firstIndex + 1 + random.nextInt(userCount - 1)) % userCount);
+        boolean remove = random.nextInt(4) == 0;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (remove) {
+                userStorage.removeFromFriends(first, second, (userId, friendId) -> { });
+            } else {
+                userStorage.addToFriends(first, second);
+            }
+        });
+    }
+
+}
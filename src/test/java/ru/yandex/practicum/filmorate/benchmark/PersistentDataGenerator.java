@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmVersions;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+@Slf4j
+public final class PersistentDataGenerator {
+    private static final int CHUNK_SIZE = 5000;
+    private static final int MAX_LIKES_PER_FILM = 5;
+
+    private PersistentDataGenerator() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Использование: PersistentDataGenerator <data-dir> <film-count> " +
+                    "[user-count]");
+        }
+
+        String dataDir = args[0];
+        int filmCount = Integer.parseInt(args[1]);
+        int userCount = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, filmCount / 100);
+        long startNanos = System.nanoTime();
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl("jdbc:h2:file:" + dataDir + "/filmorate;CACHE_SIZE=262144");
+            dataSource.setUsername("sa");
+            dataSource.setPassword("password");
+
+            Flyway.configure()
+                    .dataSource(dataSource)
+                    .locations("classpath:db/migration")
+                    .load()
+                    .migrate();
+
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            TransactionTemplate transactionTemplate =
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+            FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, new ReferenceDataCache(jdbcTemplate),
+                    new FilmCache(1000), new FilmVersions());
+            Random random = new Random(42);
+            List<Long> userIds = new ArrayList<>(userCount);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < userCount; i++) {
+                    userIds.add(userStorage.addNew(createUser(i)).getId());
+                }
+            });
+
+            for (int chunkStart = 0; chunkStart < filmCount; chunkStart += CHUNK_SIZE) {
+                List<Film> films = new ArrayList<>(CHUNK_SIZE);
+                List<Object[]> likes = new ArrayList<>();
+
+                for (int i = chunkStart; i < Math.min(chunkStart + CHUNK_SIZE, filmCount); i++) {
+                    films.add(createFilm(i));
+                }
+
+                transactionTemplate.executeWithoutResult(status -> filmStorage.addNewBatch(films));
+
+                for (Film film : films) {
+                    Set<Long> likerIds = new HashSet<>();
+
+                    for (int i = random.nextInt(MAX_LIKES_PER_FILM + 1); i > 0; i--) {
+                        Long userId = userIds.get(random.nextInt(userIds.size()));
+
+                        if (likerIds.add(userId)) {
+                            likes.add(new Object[]{film.getId(), userId});
+                        }
+                    }
+                }
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(
+                            "MERGE INTO FILM_LIKES (FILM_ID, USER_ID) KEY (FILM_ID, USER_ID) VALUES (?, ?)", likes);
+                    jdbcTemplate.update("UPDATE FILMS f SET LIKE_COUNT = " +
+                                    "(SELECT COUNT(*) FROM FILM_LIKES fl WHERE fl.FILM_ID = f.ID) " +
+                                    "WHERE f.ID BETWEEN ? AND ?",
+                            films.get(0).getId(), films.get(films.size() - 1).getId());
+                });
+                log.info("Сгенерировано фильмов: " + Math.min(chunkStart + CHUNK_SIZE, filmCount) + " из " +
+                        filmCount);
+            }
+        }
+
+        log.info("База " + dataDir + " заполнена. Фильмов: " + filmCount + ", пользователей: " + userCount +
+                ", время " + (System.nanoTime() - startNanos) / 1_000_000 + " мс");
+    }
+
+    private static Film createFilm(int number) {
+        List<Genre> genres = new ArrayList<>();
+
+        genres.add(Genre.builder().id((long) (number % 6 + 1)).build());
+
+        if (number % 3 == 0) {
+            genres.add(Genre.builder().id((long) ((number + 2) % 6 + 1)).build());
+        }
+
+        return Film.builder()
+                .name("Фильм " + number)
+                .description("Описание фильма номер " + number + " для проверки перезапуска")
+                .releaseDate(LocalDate.of(1950, 1, 1).plusDays(number % 25000))
+                .duration(60 + number % 120)
+                .mpa(MPA.builder().id((long) (number % 5 + 1)).build())
+                .genres(genres)
+                .build();
+    }
+
+    private static User createUser(int number) {
+        return User.builder()
+                .login("user" + number)
+                .name("User " + number)
+                .email("user" + number + "@ya.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+}
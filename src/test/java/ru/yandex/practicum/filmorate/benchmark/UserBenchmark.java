@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=benchmark-logback.xml")
+public class UserBenchmark {
+    @Param({"memory", "db"})
+    private String storageType;
+    @Param({"100", "1000"})
+    private int friendCount;
+
+    private BenchmarkDatabase database;
+    private UserStorage userStorage;
+    private UserService userService;
+    private User firstUser;
+    private User secondUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("db".equals(storageType)) {
+            database = new BenchmarkDatabase();
+            userStorage = new UserDbStorage(database.getJdbcTemplate());
+        } else {
+            userStorage = new InMemoryUserStorage();
+        }
+
+        userService = new UserService(userStorage, new FriendGraphIndex(userStorage));
+        firstUser = userStorage.addNew(createUser("first"));
+        secondUser = userStorage.addNew(createUser("second"));
+
+        for (int i = 0; i < friendCount * 3 / 2; i++) {
+            User friend = userStorage.addNew(createUser("friend" + i));
+
+            if (i < friendCount) {
+                userStorage.addToFriends(firstUser, friend);
+            }
+
+            if (i >= friendCount / 2) {
+                userStorage.addToFriends(secondUser, friend);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public Set<User> getCommonFriendList() {
+        return userService.getCommonFriendList(firstUser.getId(), secondUser.getId());
+    }
+
+    @Benchmark
+    public List<User> getUserFriendList() {
+        return userStorage.getUserFriendList(firstUser.getId());
+    }
+
+    private static User createUser(String login) {
+        return User.builder()
+                .login(login)
+                .name(login)
+                .email(login + "@ya.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+}
@@ -1,25 +1,59 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import ru.yandex.practicum.filmorate.exception.FilmServiceException;
 import ru.yandex.practicum.filmorate.exception.FilmValidationException;
+import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.exception.StorageOverloadedException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.StorageExecutors;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmControllerTest {
     private FilmController filmController;
     private FilmService filmService;
+    private RecommendationService recommendationService;
     private UserStorage userStorage;
     private FilmStorage filmStorage;
     private static DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -31,46 +65,317 @@ class FilmControllerTest {
     void setUp() {
         userStorage = new InMemoryUserStorage();
         filmStorage = new InMemoryFilmStorage();
-        filmService = new FilmService(userStorage, filmStorage);
-        filmController = new FilmController(filmService);
+        LikeWriteBuffer likeWriteBuffer = new LikeWriteBuffer(filmStorage, false, 500);
+        FilmSimilarityIndex similarityIndex = new FilmSimilarityIndex(filmStorage, likeWriteBuffer);
+        filmService = new FilmService(userStorage, filmStorage, similarityIndex, new FilmSearchIndex(filmStorage),
+                likeWriteBuffer);
+        recommendationService = new RecommendationService(userStorage, filmStorage, similarityIndex);
+        filmController = new FilmController(filmService, new ObjectMapper().findAndRegisterModules(),
+                new StorageExecutors(2, 10, 1, 10), recommendationService);
         film = Film.builder()
                 .name("Sleepy hollow")
                 .description("That creepy movie")
                 .releaseDate(LocalDate.parse("1999-02-01", dateTimeFormatter))
                 .duration(120)
+                .mpa(MPA.builder().id(1L).name("G").build())
+                .genres(new ArrayList<>())
                 .build();
         existingFilm = Film.builder()
                 .name("Hackers")
                 .description("Crash n burn stuff")
                 .releaseDate(LocalDate.parse("1996-07-12", dateTimeFormatter))
                 .duration(90)
+                .mpa(MPA.builder().id(1L).name("G").build())
+                .genres(new ArrayList<>())
                 .build();
 
-        filmController.addNew(existingFilm);
-        existingFilmId = filmController.getAll()
+        await(filmController.addNew(existingFilm));
+        existingFilmId = await(filmController.getAll(new FilmFilter()))
                 .stream().filter(film1 -> film1.equals(existingFilm)).findFirst().get().getId();
 
     }
 
     @Test
     void checkaddNewValidFilm() {
-        filmController.addNew(film);
-        Assertions.assertTrue(filmController.getAll().contains(film));
+        await(filmController.addNew(film));
+        Assertions.assertTrue(await(filmController.getAll(new FilmFilter())).contains(film));
+    }
+
+    @Test
+    void checkAddBatchReportsItemErrors() {
+        Film filmWithWrongDuration = Film.builder()
+                .name("Negative")
+                .description("Wrong duration")
+                .releaseDate(LocalDate.parse("1999-02-01", dateTimeFormatter))
+                .duration(-1)
+                .build();
+
+        Film filmWithUnknownGenre = Film.builder()
+                .name("Unknown genre")
+                .description("Wrong genre")
+                .releaseDate(LocalDate.parse("1999-02-01", dateTimeFormatter))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .genres(List.of(Genre.builder().id(99L).build()))
+                .build();
+        Film filmWithoutMpa = Film.builder()
+                .name("No MPA")
+                .description("Missing rating")
+                .releaseDate(LocalDate.parse("1999-02-01", dateTimeFormatter))
+                .duration(100)
+                .build();
+
+        List<BatchItemResult> results = await(filmController.addNewBatch(
+                List.of(film, filmWithWrongDuration, filmWithUnknownGenre, filmWithoutMpa)));
+
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertEquals(film.getId(), results.get(0).getId());
+        Assertions.assertEquals(1, results.get(1).getIndex());
+        Assertions.assertEquals("Продолжительность фильма не может быть отрицательной", results.get(1).getError());
+        Assertions.assertEquals("Жанр с ID 99 не найден.", results.get(2).getError());
+        Assertions.assertEquals("Рейтинг фильма должен быть указан", results.get(3).getError());
+        Assertions.assertTrue(await(filmController.getAll(new FilmFilter())).contains(film));
+        Assertions.assertEquals(2, await(filmController.getAll(new FilmFilter())).size());
+    }
+
+    @Test
+    void checkNonPositiveBatchChunkSizeRejected() {
+        ReflectionTestUtils.setField(filmService, "batchChunkSize", 0);
+
+        Exception e = Assertions.assertThrows(FilmServiceException.class, () -> filmService.checkBatchChunkSize());
+        Assertions.assertEquals("Размер пакета filmorate.batch.chunk-size должен быть больше нуля: 0", e.getMessage());
+    }
+
+    @Test
+    void checkApplyLikeEventsReportsItemErrors() {
+        User user = userStorage.addNew(User.builder()
+                .login("liker")
+                .name("Liker")
+                .email("liker@ya.ru")
+                .birthday(LocalDate.parse("1990-01-01", dateTimeFormatter))
+                .build());
+
+        List<BatchItemResult> results = await(filmController.applyLikeEvents(List.of(
+                LikeEvent.builder().filmId(existingFilmId).userId(user.getId()).operation(LikeOperation.LIKE).build(),
+                LikeEvent.builder().filmId(999L).userId(user.getId()).operation(LikeOperation.LIKE).build(),
+                LikeEvent.builder().filmId(existingFilmId).userId(999L).operation(LikeOperation.LIKE).build())));
+
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(existingFilmId, results.get(0).getId());
+        Assertions.assertNull(results.get(0).getError());
+        Assertions.assertEquals("Фильм с ID 999 не найден.", results.get(1).getError());
+        Assertions.assertEquals("Пользователь с ID 999 не найден.", results.get(2).getError());
+        Assertions.assertEquals(1, filmService.getFilmLikeCount(existingFilmId));
+    }
+
+    @Test
+    void checkSimilarFilms() {
+        Film otherFilm = await(filmController.addNew(film));
+        Film unrelatedFilm = await(filmController.addNew(Film.builder()
+                .name("Unrelated")
+                .description("Nobody watched it together")
+                .releaseDate(LocalDate.parse("2001-01-01", dateTimeFormatter))
+                .duration(80)
+                .mpa(MPA.builder().id(2L).build())
+                .build()));
+
+        for (int i = 0; i < 3; i++) {
+            User user = userStorage.addNew(User.builder()
+                    .login("liker" + i)
+                    .name("Liker")
+                    .email("liker" + i + "@ya.ru")
+                    .birthday(LocalDate.parse("1990-01-01", dateTimeFormatter))
+                    .build());
+
+            await(filmController.likeFilmByUser(existingFilmId, user.getId()));
+
+            if (i < 2) {
+                await(filmController.likeFilmByUser(otherFilm.getId(), user.getId()));
+            } else {
+                await(filmController.likeFilmByUser(unrelatedFilm.getId(), user.getId()));
+            }
+        }
+
+        Assertions.assertEquals(List.of(otherFilm, unrelatedFilm),
+                await(filmController.getSimilar(existingFilmId, null)));
+        Assertions.assertEquals(List.of(otherFilm), await(filmController.getSimilar(existingFilmId, 1)));
+        Assertions.assertEquals(List.of(existingFilm), await(filmController.getSimilar(unrelatedFilm.getId(), null)));
+
+        Exception exception = Assertions.assertThrows(RecordNotFoundException.class,
+                () -> await(filmController.getSimilar(999L, null)));
+        Assertions.assertEquals("Фильм с ID 999 не найден.", exception.getMessage());
+    }
+
+    @Test
+    void checkSearch() {
+        await(filmController.addNew(film));
+        await(filmController.addNew(Film.builder()
+                .name("Ёжик в тумане")
+                .description("Мультфильм про ежика и туман")
+                .releaseDate(LocalDate.parse("1975-01-01", dateTimeFormatter))
+                .duration(10)
+                .mpa(MPA.builder().id(2L).build())
+                .build()));
+
+        Assertions.assertEquals(List.of(film), await(filmController.search("CREEPY hollow", null)));
+        Assertions.assertEquals("Ёжик в тумане", await(filmController.search("ежик", null)).get(0).getName());
+        Assertions.assertTrue(await(filmController.search("matrix", null)).isEmpty());
+
+        existingFilm.setDescription("Creepy hackers");
+        await(filmController.change(existingFilm));
+
+        Assertions.assertEquals(List.of(existingFilm, film), await(filmController.search("creepy", null)));
+        Assertions.assertEquals(List.of(existingFilm), await(filmController.search("creepy", 1)));
+        Assertions.assertTrue(await(filmController.search("crash", null)).isEmpty());
+
+        Exception exception = Assertions.assertThrows(FilmValidationException.class,
+                () -> await(filmController.search(" ,. ", null)));
+        Assertions.assertEquals("Поисковый запрос не может быть пустым", exception.getMessage());
+    }
+
+    @Test
+    void checkFilterFilms() {
+        film.setMpa(MPA.builder().id(3L).build());
+        film.setGenres(List.of(Genre.builder().id(2L).build(), Genre.builder().id(4L).build()));
+        Film storedFilm = await(filmController.addNew(film));
+
+        Assertions.assertEquals("PG-13", storedFilm.getMpa().getName());
+        Assertions.assertEquals(List.of("Драма", "Триллер"),
+                storedFilm.getGenres().stream().map(Genre::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of(storedFilm),
+                await(filmController.getAll(FilmFilter.builder().genre(4L).build())));
+        Assertions.assertEquals(List.of(storedFilm),
+                await(filmController.getAll(FilmFilter.builder().mpa(3L).minDuration(100).build())));
+        Assertions.assertEquals(List.of(existingFilm), await(filmController.getAll(FilmFilter.builder()
+                .releasedFrom(LocalDate.parse("1996-01-01", dateTimeFormatter))
+                .releasedTo(LocalDate.parse("1996-12-31", dateTimeFormatter))
+                .build())));
+        Assertions.assertEquals(List.of(existingFilm, storedFilm),
+                await(filmController.getAll(FilmFilter.builder().maxDuration(120).build())));
+        Assertions.assertEquals(List.of(storedFilm),
+                await(filmController.getPage(null, 1, FilmFilter.builder().minDuration(100).build())).getBody());
+
+        film.setGenres(List.of(Genre.builder().id(1L).build()));
+        await(filmController.change(film));
+
+        Assertions.assertTrue(await(filmController.getAll(FilmFilter.builder().genre(4L).build())).isEmpty());
+
+        Exception exception = Assertions.assertThrows(FilmValidationException.class,
+                () -> await(filmController.getAll(FilmFilter.builder().minDuration(100).maxDuration(90).build())));
+        Assertions.assertEquals("Минимальная продолжительность не может быть больше максимальной",
+                exception.getMessage());
+    }
+
+    @Test
+    void checkKeysetPagination() {
+        await(filmController.addNew(film));
+
+        ResponseEntity<List<Film>> firstPage = await(filmController.getPage(null, 1, new FilmFilter()));
+
+        Assertions.assertEquals(List.of(existingFilm), firstPage.getBody());
+        Assertions.assertEquals(String.valueOf(existingFilmId), firstPage.getHeaders().getFirst("X-Next-Cursor"));
+
+        ResponseEntity<List<Film>> secondPage = await(filmController.getPage(existingFilmId, 1, new FilmFilter()));
+
+        Assertions.assertEquals(List.of(film), secondPage.getBody());
+        Assertions.assertFalse(secondPage.getHeaders().containsKey("X-Next-Cursor"));
+
+        Exception exception = Assertions.assertThrows(FilmValidationException.class,
+                () -> await(filmController.getPage(null, 0, new FilmFilter())));
+        Assertions.assertEquals("Размер страницы должен быть положительным", exception.getMessage());
+    }
+
+    @Test
+    void checkExportWritesOneJsonObjectPerLine() throws Exception {
+        await(filmController.addNew(film));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebAsyncTask<Void> exportTask = filmController.exportAll(response);
+
+        Assertions.assertEquals(600000L, exportTask.getTimeout());
+        exportTask.getCallable().call();
+
+        String[] lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+
+        Assertions.assertEquals("application/x-ndjson", response.getContentType());
+
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].contains("\"name\":\"Hackers\""));
+        Assertions.assertTrue(lines[1].contains("\"name\":\"Sleepy hollow\""));
+    }
+
+    @Test
+    void checkConditionalGetById() {
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+
+        Assertions.assertEquals(existingFilm, await(filmController.getById(existingFilmId,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/films/" + existingFilmId), firstResponse))));
+
+        String etag = firstResponse.getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest conditionalRequest = new MockHttpServletRequest("GET", "/films/" + existingFilmId);
+        MockHttpServletResponse notModifiedResponse = new MockHttpServletResponse();
+
+        conditionalRequest.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        Assertions.assertNull(filmController.getById(existingFilmId,
+                new ServletWebRequest(conditionalRequest, notModifiedResponse)));
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED.value(), notModifiedResponse.getStatus());
+
+        existingFilm.setName("Hackers 2");
+        await(filmController.change(existingFilm));
+
+        MockHttpServletResponse changedResponse = new MockHttpServletResponse();
+
+        Assertions.assertEquals(existingFilm, await(filmController.getById(existingFilmId,
+                new ServletWebRequest(conditionalRequest, changedResponse))));
+        Assertions.assertNotEquals(etag, changedResponse.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void checkSaturatedStorageRejectsRequests() {
+        StorageExecutors saturatedExecutors = new StorageExecutors(1, 1, 1, 1);
+        FilmController saturatedController = new FilmController(filmService, new ObjectMapper(),
+                saturatedExecutors, recommendationService);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Boolean> blocked = () -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        };
+        CompletableFuture<Boolean> running = saturatedExecutors.read(blocked);
+        CompletableFuture<Boolean> queued = saturatedExecutors.read(blocked);
+
+        try {
+            Exception exception = Assertions.assertThrows(StorageOverloadedException.class,
+                    () -> saturatedController.getAll(new FilmFilter()));
+            Assertions.assertEquals("Сервис перегружен, повторите запрос позже", exception.getMessage());
+            Assertions.assertEquals(existingFilm, await(saturatedController.change(existingFilm)));
+        } finally {
+            release.countDown();
+        }
+
+        Assertions.assertTrue(running.join());
+        Assertions.assertTrue(queued.join());
+        Assertions.assertEquals(1, await(saturatedController.getAll(new FilmFilter())).size());
+        saturatedExecutors.destroy();
     }
 
     @Test
     void checkaddFilmWithEmptyName() {
         film.setName("");
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.addNew(film));
+                () -> await(filmController.addNew(film)));
         Assertions.assertEquals("Название фильма не может быть пустым", exception.getMessage());
-        Assertions.assertFalse(filmController.getAll().contains(film));
+        Assertions.assertFalse(await(filmController.getAll(new FilmFilter())).contains(film));
 
         film.setName(null);
         exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.addNew(film));
+                () -> await(filmController.addNew(film)));
         Assertions.assertEquals("Название фильма не может быть пустым", exception.getMessage());
-        Assertions.assertFalse(filmController.getAll().contains(film));
+        Assertions.assertFalse(await(filmController.getAll(new FilmFilter())).contains(film));
     }
 
     @Test
@@ -82,9 +387,9 @@ class FilmControllerTest {
                 "That creepy movie" + "That creepy movie");
 
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.addNew(film));
+                () -> await(filmController.addNew(film)));
         Assertions.assertEquals("Описание фильма не может быть длиннее 200 символов", exception.getMessage());
-        Assertions.assertFalse(filmController.getAll().contains(film));
+        Assertions.assertFalse(await(filmController.getAll(new FilmFilter())).contains(film));
     }
 
     @Test
@@ -92,20 +397,20 @@ class FilmControllerTest {
         film.setReleaseDate(LocalDate.parse("1699-02-01", dateTimeFormatter));
 
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.addNew(film));
+                () -> await(filmController.addNew(film)));
         Assertions.assertEquals("Дата релиза не может быть раньше " + filmStorage.getLowThresholdDate(),
                 exception.getMessage());
-        Assertions.assertFalse(filmController.getAll().contains(film));
+        Assertions.assertFalse(await(filmController.getAll(new FilmFilter())).contains(film));
     }
 
     @Test
     void checkaddFilmWithWrongDuration() {
         film.setDuration(-2);
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.addNew(film));
+                () -> await(filmController.addNew(film)));
         Assertions.assertEquals("Продолжительность фильма не может быть отрицательной",
                 exception.getMessage());
-        Assertions.assertFalse(filmController.getAll().contains(film));
+        Assertions.assertFalse(await(filmController.getAll(new FilmFilter())).contains(film));
     }
 
     @Test
@@ -114,19 +419,20 @@ class FilmControllerTest {
         String newDescription = "Zero cool is back";
         LocalDate newDate = LocalDate.parse("1996-07-12", dateTimeFormatter);
         Integer newDuration = 92;
-        filmController.change(Film.builder()
+        await(filmController.change(Film.builder()
                 .id(existingFilmId)
                 .name(newName)
                 .description(newDescription)
                 .releaseDate(newDate)
                 .duration(newDuration)
                 .build()
-        );
+        ));
+        Film changedFilm = filmService.getFilmById(existingFilmId);
 
-        Assertions.assertTrue(newName.equals(existingFilm.getName()) &&
-                newDescription.equals(existingFilm.getDescription()) &&
-                newDate.equals(existingFilm.getReleaseDate()) &&
-                newDuration.equals(existingFilm.getDuration()));
+        Assertions.assertTrue(newName.equals(changedFilm.getName()) &&
+                newDescription.equals(changedFilm.getDescription()) &&
+                newDate.equals(changedFilm.getReleaseDate()) &&
+                newDuration.equals(changedFilm.getDuration()));
     }
 
     @Test
@@ -134,7 +440,7 @@ class FilmControllerTest {
         final String finalNewName = "";
 
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.change(
+                () -> await(filmController.change(
                         Film.builder()
                                 .id(existingFilmId)
                                 .name(finalNewName)
@@ -142,7 +448,7 @@ class FilmControllerTest {
                                 .releaseDate(existingFilm.getReleaseDate())
                                 .duration(existingFilm.getDuration())
                                 .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Название фильма не может быть пустым", exception.getMessage());
@@ -151,14 +457,14 @@ class FilmControllerTest {
         final String finalNewName2 = null;
 
         exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.change(
+                () -> await(filmController.change(
                         Film.builder()
                                 .id(existingFilmId)
                                 .name(finalNewName2)
                                 .description(existingFilm.getDescription())
                                 .releaseDate(existingFilm.getReleaseDate())
                                 .duration(existingFilm.getDuration()).build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Название фильма не может быть пустым", exception.getMessage());
@@ -173,7 +479,7 @@ class FilmControllerTest {
                 "description is too big New description is too big New description is too big New description is too big ";
 
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.change(
+                () -> await(filmController.change(
                         Film.builder()
                                 .id(existingFilmId)
                                 .name(existingFilm.getName())
@@ -181,7 +487,7 @@ class FilmControllerTest {
                                 .releaseDate(existingFilm.getReleaseDate())
                                 .duration(existingFilm.getDuration())
                                 .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Описание фильма не может быть длиннее 200 символов", exception.getMessage());
@@ -194,7 +500,7 @@ class FilmControllerTest {
         final LocalDate finalNewReleaseDate = LocalDate.parse("1299-02-01", dateTimeFormatter);
 
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.change(
+                () -> await(filmController.change(
                         Film.builder()
                                 .id(existingFilmId)
                                 .name(existingFilm.getName())
@@ -202,7 +508,7 @@ class FilmControllerTest {
                                 .releaseDate(finalNewReleaseDate)
                                 .duration(existingFilm.getDuration())
                                 .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Дата релиза не может быть раньше " + filmStorage.getLowThresholdDate(),
@@ -215,7 +521,7 @@ class FilmControllerTest {
         final Integer finalNewDuration = -2;
 
         Exception exception = Assertions.assertThrows(FilmValidationException.class,
-                () -> filmController.change(
+                () -> await(filmController.change(
                         Film.builder()
                                 .id(existingFilmId)
                                 .name(existingFilm.getName())
@@ -223,7 +529,7 @@ class FilmControllerTest {
                                 .releaseDate(existingFilm.getReleaseDate())
                                 .duration(finalNewDuration)
                                 .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Продолжительность фильма не может быть отрицательной",
@@ -231,4 +537,16 @@ class FilmControllerTest {
         Assertions.assertNotEquals(finalNewDuration, existingFilm.getDuration());
     }
 
-}
\ No newline at end of file
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+}
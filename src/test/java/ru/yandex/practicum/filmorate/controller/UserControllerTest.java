@@ -7,12 +7,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import ru.yandex.practicum.filmorate.exception.UserValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.service.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.StorageExecutors;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class UserControllerTest {
@@ -25,8 +35,12 @@ class UserControllerTest {
     @BeforeEach
     void setUp() {
         UserStorage userStorage = new InMemoryUserStorage();
-        UserService userService = new UserService(userStorage);
-        userController = new UserController(userService);
+        FilmStorage filmStorage = new InMemoryFilmStorage();
+        UserService userService = new UserService(userStorage, new FriendGraphIndex(userStorage));
+        RecommendationService recommendationService =
+                new RecommendationService(userStorage, filmStorage, new FilmSimilarityIndex(filmStorage,
+                        new LikeWriteBuffer(filmStorage, false, 500)));
+        userController = new UserController(userService, new StorageExecutors(2, 10, 1, 10), recommendationService);
         user = User.builder()
                 .email("mail@mail.ru")
                 .login("dolore")
@@ -41,37 +55,62 @@ class UserControllerTest {
                 .birthday(LocalDate.parse("1966-08-20", dateTimeFormatter))
                 .build();
 
-        userController.addNew(existingUser);
-        existingUserId = userController.getAll()
+        await(userController.addNew(existingUser));
+        existingUserId = await(userController.getAll())
                 .stream().filter(user1 -> user1.equals(existingUser)).findFirst().get().getId();
 
     }
 
     @Test
     void checkaddNewValidUser() {
-        userController.addNew(user);
-        Assertions.assertTrue(userController.getAll().contains(user));
+        await(userController.addNew(user));
+        Assertions.assertTrue(await(userController.getAll()).contains(user));
+    }
+
+    @Test
+    void checkFriendSuggestions() {
+        User firstFriend = await(userController.addNew(user));
+        User secondFriend = await(userController.addNew(createUser("second")));
+        User popularContact = await(userController.addNew(createUser("popular")));
+        User rareContact = await(userController.addNew(createUser("rare")));
+
+        await(userController.makeFriends(existingUserId, firstFriend.getId()));
+        await(userController.makeFriends(existingUserId, secondFriend.getId()));
+        await(userController.makeFriends(firstFriend.getId(), popularContact.getId()));
+        await(userController.makeFriends(secondFriend.getId(), popularContact.getId()));
+        await(userController.makeFriends(secondFriend.getId(), rareContact.getId()));
+        await(userController.makeFriends(secondFriend.getId(), existingUserId));
+
+        Assertions.assertEquals(List.of(popularContact, rareContact),
+                await(userController.getFriendSuggestions(existingUserId, null)));
+        Assertions.assertEquals(List.of(popularContact),
+                await(userController.getFriendSuggestions(existingUserId, 1)));
+
+        await(userController.makeFriends(existingUserId, popularContact.getId()));
+
+        Assertions.assertEquals(List.of(rareContact),
+                await(userController.getFriendSuggestions(existingUserId, null)));
     }
 
     @Test
     void checkaddUserWithEmptyLogin() {
         user.setLogin("");
         Exception exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
         Assertions.assertEquals("Логин не может быть пустым", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
 
         user.setLogin(null);
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
         Assertions.assertEquals("Логин не может быть пустым", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
 
         user.setLogin("Login with whitespaces");
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
         Assertions.assertEquals("Логин не может содержать пробелы", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
 
     }
 
@@ -80,23 +119,23 @@ class UserControllerTest {
         user.setEmail(null);
 
         Exception exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
         Assertions.assertEquals("Почта не может быть пустой", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
 
         user.setEmail("");
 
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
         Assertions.assertEquals("Почта не может быть пустой", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
 
         user.setEmail("asd");
 
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
         Assertions.assertEquals("Некорректный формат почты", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
 
     }
 
@@ -105,18 +144,18 @@ class UserControllerTest {
         user.setBirthday(LocalDate.parse("2099-02-01", dateTimeFormatter));
 
         Exception exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.addNew(user));
+                () -> await(userController.addNew(user)));
 
         Assertions.assertEquals("Дата рождения не может быть в будущем", exception.getMessage());
-        Assertions.assertFalse(userController.getAll().contains(user));
+        Assertions.assertFalse(await(userController.getAll()).contains(user));
     }
 
     @Test
     void checkaddUserWithEmptyName() {
         user.setName("");
-        userController.addNew(user);
+        await(userController.addNew(user));
         Assertions.assertEquals(user.getName(), user.getLogin());
-        Assertions.assertTrue(userController.getAll().contains(user));
+        Assertions.assertTrue(await(userController.getAll()).contains(user));
     }
 
     @Test
@@ -126,33 +165,34 @@ class UserControllerTest {
         String newEmail = "newemail@mail.com";
         LocalDate newBirthDate = LocalDate.parse("1990-12-02", dateTimeFormatter);
 
-        userController.change(User.builder()
+        await(userController.change(User.builder()
                 .id(existingUserId)
                 .email(newEmail)
                 .login(newLogin)
                 .name(newName)
                 .birthday(newBirthDate)
                 .build()
-        );
+        ));
+        User changedUser = await(userController.getById(existingUserId));
 
-        Assertions.assertTrue(newName.equals(existingUser.getName()) &&
-                newLogin.equals(existingUser.getLogin()) &&
-                newEmail.equals(existingUser.getEmail()) &&
-                newBirthDate.equals(existingUser.getBirthday()));
+        Assertions.assertTrue(newName.equals(changedUser.getName()) &&
+                newLogin.equals(changedUser.getLogin()) &&
+                newEmail.equals(changedUser.getEmail()) &&
+                newBirthDate.equals(changedUser.getBirthday()));
     }
 
     @Test
     void checkModifyLoginWrongly() {
         final String finalNewLogin = "";
         Exception exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(existingUser.getEmail())
                         .login(finalNewLogin)
                         .name(existingUser.getName())
                         .birthday(existingUser.getBirthday())
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Логин не может быть пустым", exception.getMessage());
@@ -160,14 +200,14 @@ class UserControllerTest {
 
         final String finalNewLogin2 = null;
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(existingUser.getEmail())
                         .login(finalNewLogin2)
                         .name(existingUser.getName())
                         .birthday(existingUser.getBirthday())
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Логин не может быть пустым", exception.getMessage());
@@ -176,14 +216,14 @@ class UserControllerTest {
         final String finalNewLogin3 = "Login whitespace";
 
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(existingUser.getEmail())
                         .login(finalNewLogin3)
                         .name(existingUser.getName())
                         .birthday(existingUser.getBirthday())
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Логин не может содержать пробелы", exception.getMessage());
@@ -195,14 +235,14 @@ class UserControllerTest {
     void checkModifyUserWithWrongBirthdate() {
         final LocalDate finalDate = LocalDate.parse("2099-02-01", dateTimeFormatter);
         Exception exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(existingUser.getEmail())
                         .login(existingUser.getLogin())
                         .name(existingUser.getName())
                         .birthday(finalDate)
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Дата рождения не может быть в будущем", exception.getMessage());
@@ -214,14 +254,14 @@ class UserControllerTest {
     void checkModifyUserWithWrongEmail() {
         final String newFinalEmail = "";
         Exception exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(newFinalEmail)
                         .login(existingUser.getLogin())
                         .name(existingUser.getName())
                         .birthday(existingUser.getBirthday())
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Почта не может быть пустой", exception.getMessage());
@@ -229,14 +269,14 @@ class UserControllerTest {
 
         final String newFinalEmail2 = null;
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(newFinalEmail2)
                         .login(existingUser.getLogin())
                         .name(existingUser.getName())
                         .birthday(existingUser.getBirthday())
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Почта не может быть пустой", exception.getMessage());
@@ -244,14 +284,14 @@ class UserControllerTest {
 
         final String newFinalEmail3 = "email.com";
         exception = Assertions.assertThrows(UserValidationException.class,
-                () -> userController.change(User.builder()
+                () -> await(userController.change(User.builder()
                         .id(existingUserId)
                         .email(newFinalEmail3)
                         .login(existingUser.getLogin())
                         .name(existingUser.getName())
                         .birthday(existingUser.getBirthday())
                         .build()
-                )
+                ))
         );
 
         Assertions.assertEquals("Некорректный формат почты", exception.getMessage());
@@ -259,4 +299,25 @@ class UserControllerTest {
 
     }
 
-}
\ No newline at end of file
+    private User createUser(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.parse("1990-01-01", dateTimeFormatter))
+                .build();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+}
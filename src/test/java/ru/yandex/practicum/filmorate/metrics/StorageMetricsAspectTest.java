@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageMetricsAspectTest {
+    private SimpleMeterRegistry meterRegistry;
+    private FilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new InMemoryFilmStorage());
+
+        proxyFactory.addAspect(new StorageMetricsAspect(meterRegistry));
+        filmStorage = proxyFactory.getProxy();
+    }
+
+    @Test
+    void checkStorageCallsAreTimedByMethodAndOutcome() {
+        filmStorage.getPopular(10);
+        filmStorage.getPopular(10);
+        assertThrows(RecordNotFoundException.class, () -> filmStorage.getFilmById(99L));
+
+        assertEquals(2, meterRegistry.get(StorageMetricsAspect.STORAGE_TIMER)
+                .tags("storage", "FilmStorage", "method", "getPopular", "outcome", "success")
+                .timer().count());
+        assertEquals(1, meterRegistry.get(StorageMetricsAspect.STORAGE_TIMER)
+                .tags("method", "getFilmById", "outcome", "RecordNotFoundException")
+                .timer().count());
+    }
+
+    @Test
+    void checkStorageCallsAreCountedPerRequest() {
+        RequestMetricsInterceptor interceptor = new RequestMetricsInterceptor(meterRegistry);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/popular");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/films/popular");
+        interceptor.preHandle(request, response, null);
+        filmStorage.getPopular(10);
+        filmStorage.getAllGenres();
+        interceptor.afterCompletion(request, response, null, null);
+
+        assertEquals(2, meterRegistry.get(RequestMetricsInterceptor.STORAGE_CALLS_SUMMARY)
+                .tags("method", "GET", "uri", "/films/popular")
+                .summary().totalAmount());
+    }
+
+}
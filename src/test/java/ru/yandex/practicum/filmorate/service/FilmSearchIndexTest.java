@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private FilmSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        searchIndex = new FilmSearchIndex(filmStorage);
+    }
+
+    @Test
+    void checkTokenizer() {
+        assertEquals(List.of("ежик", "в", "тумане", "2", "the", "movie"),
+                FilmSearchIndex.tokenize("Ёжик в ТУМАНЕ-2: the Movie!"));
+        assertTrue(FilmSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void checkPreloadDoesNotBlockCaller() throws Exception {
+        CountDownLatch buildStarted = new CountDownLatch(1);
+        CountDownLatch releaseBuild = new CountDownLatch(1);
+        InMemoryFilmStorage slowStorage = new InMemoryFilmStorage() {
+            @Override
+            public void streamAll(Consumer<Film> consumer) {
+                buildStarted.countDown();
+
+                try {
+                    releaseBuild.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                super.streamAll(consumer);
+            }
+        };
+        Film film = slowStorage.addNew(createFilm("Солярис", "Фантастика"));
+        FilmSearchIndex slowIndex = new FilmSearchIndex(slowStorage);
+
+        slowIndex.preload();
+
+        assertTrue(buildStarted.await(10, TimeUnit.SECONDS));
+        releaseBuild.countDown();
+        assertEquals(List.of(film.getId()), slowIndex.search("солярис", 10));
+    }
+
+    @Test
+    void checkBm25Ranking() {
+        Film rare = filmStorage.addNew(createFilm("Солярис", "Фантастика про космос и океан"));
+        Film frequent = filmStorage.addNew(createFilm("Космос", "Космос, космос и еще раз космос"));
+        Film unrelated = filmStorage.addNew(createFilm("Сталкер", "Зона и комната"));
+
+        assertEquals(List.of(frequent.getId(), rare.getId()), searchIndex.search("космос", 10));
+        assertEquals(List.of(rare.getId(), frequent.getId()), searchIndex.search("солярис космос", 10));
+        assertEquals(List.of(unrelated.getId()), searchIndex.search("Зона", 10));
+        assertEquals(List.of(frequent.getId()), searchIndex.search("космос", 1));
+        assertTrue(searchIndex.search("матрица", 10).isEmpty());
+    }
+
+    @Test
+    void checkIncrementalUpdatesSurviveCompaction() {
+        Film film = filmStorage.addNew(createFilm("Первый", "Описание"));
+        List<Long> otherIds = new ArrayList<>();
+
+        searchIndex.search("первый", 10);
+
+        for (int i = 0; i < 10; i++) {
+            Film other = filmStorage.addNew(createFilm("Другой " + i, "Описание"));
+
+            searchIndex.onFilmSaved(other);
+            otherIds.add(other.getId());
+        }
+
+        for (int i = 0; i <= FilmSearchIndex.MIN_COMPACTION_THRESHOLD * 2; i++) {
+            film.setName("Версия " + i);
+            searchIndex.onFilmSaved(film);
+        }
+
+        assertTrue(searchIndex.search("первый", 10).isEmpty());
+        assertEquals(List.of(film.getId()), searchIndex.search("версия " + FilmSearchIndex.MIN_COMPACTION_THRESHOLD * 2,
+                1));
+        assertEquals(11, searchIndex.search("описание", 20).size());
+        assertEquals(otherIds.get(3), searchIndex.search("другой 3", 1).get(0));
+        assertTrue(searchIndex.getDocumentSlotCount() <= 11 + FilmSearchIndex.MIN_COMPACTION_THRESHOLD + 1);
+    }
+
+    @Test
+    void checkRepeatedChangesDoNotGrowIndex() {
+        Film film = filmStorage.addNew(createFilm("Первый", "Описание"));
+
+        searchIndex.search("первый", 10);
+
+        for (int i = 0; i < FilmSearchIndex.MIN_COMPACTION_THRESHOLD * 20; i++) {
+            film.setName("Версия " + i);
+            searchIndex.onFilmSaved(film);
+        }
+
+        assertTrue(searchIndex.getDocumentSlotCount() <= FilmSearchIndex.MIN_COMPACTION_THRESHOLD + 2);
+        assertEquals(List.of(film.getId()), searchIndex.search("описание", 10));
+        assertEquals(List.of(film.getId()),
+                searchIndex.search("версия " + (FilmSearchIndex.MIN_COMPACTION_THRESHOLD * 20 - 1), 10));
+    }
+
+    private Film createFilm(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .genres(new ArrayList<>())
+                .build();
+    }
+
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSimilarityIndexTest {
+    private InMemoryFilmStorage filmStorage;
+    private LikeWriteBuffer likeWriteBuffer;
+    private FilmSimilarityIndex similarityIndex;
+    private List<Long> filmIds;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        likeWriteBuffer = new LikeWriteBuffer(filmStorage, true, 1000);
+        similarityIndex = new FilmSimilarityIndex(filmStorage, likeWriteBuffer);
+        filmIds = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            filmIds.add(filmStorage.addNew(createFilm("Фильм " + i)).getId());
+        }
+    }
+
+    @Test
+    void checkRecommendationsExcludeLikedFilms() {
+        like(0, 1L);
+        like(1, 1L);
+        like(0, 2L);
+        like(1, 2L);
+        like(2, 2L);
+        like(0, 3L);
+        like(3, 3L);
+
+        assertEquals(List.of(filmIds.get(2), filmIds.get(3)), similarityIndex.getRecommendedFilmIds(1L, 10));
+        assertEquals(List.of(filmIds.get(2)), similarityIndex.getRecommendedFilmIds(1L, 1));
+        assertTrue(similarityIndex.getRecommendedFilmIds(99L, 10).isEmpty());
+
+        unlike(2, 2L);
+
+        assertEquals(List.of(filmIds.get(3)), similarityIndex.getRecommendedFilmIds(1L, 10));
+    }
+
+    @Test
+    void checkBufferedLikesIncludedInFirstBuild() {
+        for (long userId = 1; userId <= 2; userId++) {
+            for (int filmIndex = 0; filmIndex < 2; filmIndex++) {
+                likeWriteBuffer.like(filmIds.get(filmIndex), userId);
+                similarityIndex.onLike(filmIds.get(filmIndex), userId);
+            }
+        }
+
+        likeWriteBuffer.like(filmIds.get(0), 3L);
+        similarityIndex.onLike(filmIds.get(0), 3L);
+
+        assertEquals(List.of(filmIds.get(1)), similarityIndex.getSimilarFilmIds(filmIds.get(0), 10));
+        assertEquals(List.of(filmIds.get(1)), similarityIndex.getRecommendedFilmIds(3L, 10));
+        assertEquals(0, likeWriteBuffer.getPendingCount());
+    }
+
+    @Test
+    void checkIncrementalUpdatesMatchRebuild() {
+        Random random = new Random(42);
+
+        similarityIndex.getSimilarFilmIds(filmIds.get(0), 10);
+
+        for (int i = filmIds.size(); i < 40; i++) {
+            filmIds.add(filmStorage.addNew(createFilm("Фильм " + i)).getId());
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            int filmIndex = random.nextInt(filmIds.size());
+            long userId = random.nextInt(40) + 1;
+
+            if (random.nextInt(3) == 0) {
+                unlike(filmIndex, userId);
+            } else {
+                like(filmIndex, userId);
+            }
+        }
+
+        List<List<Long>> incremental = new ArrayList<>();
+        List<List<Long>> incrementalRecommendations = new ArrayList<>();
+
+        for (Long filmId : filmIds) {
+            incremental.add(similarityIndex.getSimilarFilmIds(filmId, 10));
+        }
+
+        for (long userId = 1; userId <= 40; userId++) {
+            incrementalRecommendations.add(similarityIndex.getRecommendedFilmIds(userId, 10));
+        }
+
+        similarityIndex.rebuild();
+
+        for (int i = 0; i < filmIds.size(); i++) {
+            assertEquals(incremental.get(i), similarityIndex.getSimilarFilmIds(filmIds.get(i), 10));
+        }
+
+        for (int i = 0; i < 40; i++) {
+            assertEquals(incrementalRecommendations.get(i), similarityIndex.getRecommendedFilmIds(i + 1L, 10));
+        }
+    }
+
+    private void like(int filmIndex, long userId) {
+        filmStorage.createLikeFilmByUser(filmIds.get(filmIndex), userId);
+        similarityIndex.onLike(filmIds.get(filmIndex), userId);
+    }
+
+    private void unlike(int filmIndex, long userId) {
+        filmStorage.deleteLikeFilmByUser(filmIds.get(filmIndex), userId);
+        similarityIndex.onUnlike(filmIds.get(filmIndex), userId);
+    }
+
+    private Film createFilm(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .genres(new ArrayList<>())
+                .build();
+    }
+
+}
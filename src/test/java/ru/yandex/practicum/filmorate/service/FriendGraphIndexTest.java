@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendGraphIndexTest {
+
+    @Test
+    void checkIncrementalUpdatesMatchBruteForce() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FriendGraphIndex friendGraphIndex = new FriendGraphIndex(userStorage);
+        Map<Long, Set<Long>> friends = new HashMap<>();
+        List<User> users = new ArrayList<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 60; i++) {
+            users.add(userStorage.addNew(User.builder()
+                    .login("user" + i)
+                    .name("user" + i)
+                    .email("user" + i + "@ya.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            addFriend(userStorage, friends, users.get(random.nextInt(40)), users.get(random.nextInt(40)));
+        }
+
+        friendGraphIndex.getSuggestedUserIds(users.get(0).getId(), 5);
+
+        for (int i = 0; i < FriendGraphIndex.MIN_COMPACTION_THRESHOLD * 3; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            User friend = users.get(random.nextInt(users.size()));
+
+            if (random.nextInt(3) == 0) {
+                userStorage.removeFromFriends(user, friend, friendGraphIndex::onFriendRemoved);
+                friends.getOrDefault(user.getId(), new HashSet<>()).remove(friend.getId());
+                friends.getOrDefault(friend.getId(), new HashSet<>()).remove(user.getId());
+            } else {
+                addFriend(userStorage, friends, user, friend);
+                friendGraphIndex.onFriendAdded(user.getId(), friend.getId());
+            }
+        }
+
+        for (User user : users) {
+            List<Long> expected = bruteForceSuggestions(friends, user.getId(), 5);
+
+            assertEquals(expected, friendGraphIndex.getSuggestedUserIds(user.getId(), 5));
+        }
+
+        friendGraphIndex.rebuild();
+
+        for (User user : users) {
+            assertEquals(bruteForceSuggestions(friends, user.getId(), 5),
+                    friendGraphIndex.getSuggestedUserIds(user.getId(), 5));
+        }
+    }
+
+    @Test
+    void checkInMemoryRemovalDropsBothDirections() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FriendGraphIndex friendGraphIndex = new FriendGraphIndex(userStorage);
+        UserService userService = new UserService(userStorage, friendGraphIndex);
+        List<User> users = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.addNew(User.builder()
+                    .login("user" + i)
+                    .name("user" + i)
+                    .email("user" + i + "@ya.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()));
+        }
+
+        Long firstId = users.get(0).getId();
+        Long secondId = users.get(1).getId();
+        Long thirdId = users.get(2).getId();
+
+        userService.makeFriends(firstId, secondId);
+        userService.makeFriends(secondId, firstId);
+        userService.makeFriends(thirdId, secondId);
+
+        assertEquals(List.of(firstId), friendGraphIndex.getSuggestedUserIds(thirdId, 5));
+
+        userService.deleteFriends(firstId, secondId);
+
+        assertTrue(userStorage.getUserFriendList(secondId).isEmpty());
+        assertTrue(friendGraphIndex.getSuggestedUserIds(thirdId, 5).isEmpty());
+
+        friendGraphIndex.rebuild();
+
+        assertTrue(friendGraphIndex.getSuggestedUserIds(thirdId, 5).isEmpty());
+    }
+
+    private void addFriend(InMemoryUserStorage userStorage, Map<Long, Set<Long>> friends, User user, User friend) {
+        userStorage.addToFriends(user, friend);
+        friends.computeIfAbsent(user.getId(), id -> new HashSet<>()).add(friend.getId());
+    }
+
+    private List<Long> bruteForceSuggestions(Map<Long, Set<Long>> friends, Long userId, int count) {
+        Set<Long> userFriends = friends.getOrDefault(userId, Set.of());
+        Map<Long, Integer> mutualCounts = new HashMap<>();
+
+        for (Long friendId : userFriends) {
+            for (Long candidateId : friends.getOrDefault(friendId, Set.of())) {
+                if (!candidateId.equals(userId) && !userFriends.contains(candidateId)) {
+                    mutualCounts.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<Long> candidates = new ArrayList<>(mutualCounts.keySet());
+
+        candidates.sort(Comparator.<Long>comparingInt(mutualCounts::get).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        return candidates.subList(0, Math.min(count, candidates.size()));
+    }
+
+}
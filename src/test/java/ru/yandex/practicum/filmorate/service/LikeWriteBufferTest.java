@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeWriteBufferTest {
+    private InMemoryFilmStorage filmStorage;
+    private LikeWriteBuffer likeWriteBuffer;
+    private Long filmId;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        likeWriteBuffer = new LikeWriteBuffer(filmStorage, true, 100);
+        filmId = filmStorage.addNew(Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .build()).getId();
+    }
+
+    @Test
+    void checkReadsSeeUnflushedLikes() {
+        filmStorage.createLikeFilmByUser(filmId, 1L);
+        likeWriteBuffer.like(filmId, 2L);
+        likeWriteBuffer.like(filmId, 3L);
+        likeWriteBuffer.unlike(filmId, 1L);
+
+        assertEquals(Set.of(1L), filmStorage.getLikeListForFilm(filmId));
+        assertEquals(Set.of(2L, 3L), likeWriteBuffer.getLikeList(filmId));
+        assertEquals(2, likeWriteBuffer.getLikeCount(filmId));
+
+        likeWriteBuffer.flush();
+
+        assertEquals(Set.of(2L, 3L), filmStorage.getLikeListForFilm(filmId));
+        assertEquals(2, filmStorage.getFilmLikeStorageCount(filmId));
+        assertEquals(0, likeWriteBuffer.getPendingCount());
+    }
+
+    @Test
+    void checkReadsSeeLikesFlushedDuringStorageRead() {
+        LikeWriteBuffer[] buffer = new LikeWriteBuffer[1];
+        boolean[] flushed = new boolean[1];
+        InMemoryFilmStorage flushingStorage = new InMemoryFilmStorage() {
+            @Override
+            public Set<Long> getLikeListForFilm(Long filmId) {
+                Set<Long> likeList = new HashSet<>(super.getLikeListForFilm(filmId));
+
+                if (!flushed[0]) {
+                    flushed[0] = true;
+                    buffer[0].flush();
+                }
+
+                return likeList;
+            }
+        };
+        Long flushingFilmId = flushingStorage.addNew(Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .build()).getId();
+
+        buffer[0] = new LikeWriteBuffer(flushingStorage, true, 100);
+        buffer[0].like(flushingFilmId, 1L);
+
+        assertEquals(Set.of(1L), buffer[0].getLikeList(flushingFilmId));
+        assertTrue(flushed[0]);
+        assertEquals(0, buffer[0].getPendingCount());
+        assertEquals(Set.of(1L), flushingStorage.getLikeListForFilm(flushingFilmId));
+    }
+
+    @Test
+    void checkLikeAndUnlikeCoalesce() {
+        likeWriteBuffer.like(filmId, 1L);
+        likeWriteBuffer.unlike(filmId, 1L);
+        likeWriteBuffer.like(filmId, 1L);
+        likeWriteBuffer.like(filmId, 2L);
+        likeWriteBuffer.unlike(filmId, 2L);
+
+        assertEquals(2, likeWriteBuffer.getPendingCount());
+        assertEquals(1, likeWriteBuffer.getLikeCount(filmId));
+
+        likeWriteBuffer.destroy();
+
+        assertEquals(Set.of(1L), filmStorage.getLikeListForFilm(filmId));
+        assertEquals(0, likeWriteBuffer.getPendingCount());
+    }
+
+    @Test
+    void checkFlushOnSizeThreshold() {
+        List<LikeEvent> events = new ArrayList<>();
+
+        for (long userId = 1; userId <= 99; userId++) {
+            events.add(LikeEvent.builder().filmId(filmId).userId(userId).operation(LikeOperation.LIKE).build());
+        }
+
+        likeWriteBuffer.applyAll(events);
+
+        assertEquals(99, likeWriteBuffer.getPendingCount());
+        assertEquals(0, filmStorage.getFilmLikeStorageCount(filmId));
+
+        likeWriteBuffer.like(filmId, 100L);
+
+        assertEquals(0, likeWriteBuffer.getPendingCount());
+        assertEquals(100, filmStorage.getFilmLikeStorageCount(filmId));
+    }
+
+    @Test
+    void checkConcurrentWritersWithFlushes() throws InterruptedException {
+        int writers = 8;
+        int likesPerWriter = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch done = new CountDownLatch(writers);
+
+        for (int writer = 0; writer < writers; writer++) {
+            long firstUserId = (long) writer * likesPerWriter;
+
+            executor.submit(() -> {
+                for (long userId = firstUserId; userId < firstUserId + likesPerWriter; userId++) {
+                    likeWriteBuffer.like(filmId, userId);
+                }
+
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(writers * likesPerWriter, likeWriteBuffer.getLikeCount(filmId));
+
+        likeWriteBuffer.flush();
+
+        assertEquals(writers * likesPerWriter, filmStorage.getFilmLikeStorageCount(filmId));
+    }
+
+}
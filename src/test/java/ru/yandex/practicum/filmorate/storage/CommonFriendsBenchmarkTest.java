@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@JdbcTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class CommonFriendsBenchmarkTest {
+    private static final int FRIEND_COUNT = 3000;
+    private static final int COMMON_FRIEND_COUNT = 1000;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void dbCommonFriendsRunsSingleStatement() {
+        StatementCountingDataSource countingDataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        UserDbStorage userDbStorage = new UserDbStorage(new JdbcTemplate(countingDataSource));
+        User firstUser = userDbStorage.addNew(createUser("first"));
+        User secondUser = userDbStorage.addNew(createUser("second"));
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> friendListEntries = new ArrayList<>();
+
+        for (int i = 0; i < FRIEND_COUNT * 2 - COMMON_FRIEND_COUNT; i++) {
+            users.add(new Object[]{"friend" + i, "friend" + i, LocalDate.of(1990, 1, 1), "friend" + i + "@ya.ru"});
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (LOGIN, NAME, BIRTHDAY, EMAIL) VALUES (?, ?, ?, ?)", users);
+
+        Long firstFriendListId = jdbcTemplate.queryForObject(
+                "SELECT ID FROM USER_FRIENDLISTS WHERE USER_ID = ?", Long.class, firstUser.getId());
+        Long secondFriendListId = jdbcTemplate.queryForObject(
+                "SELECT ID FROM USER_FRIENDLISTS WHERE USER_ID = ?", Long.class, secondUser.getId());
+        List<Long> friendIds = jdbcTemplate.queryForList(
+                "SELECT ID FROM USERS WHERE LOGIN LIKE 'friend%' ORDER BY ID", Long.class);
+
+        for (int i = 0; i < friendIds.size(); i++) {
+            if (i < FRIEND_COUNT) {
+                friendListEntries.add(new Object[]{firstFriendListId, friendIds.get(i), UserDbStorage.UNCONFIRMED_STATUS});
+            }
+
+            if (i >= FRIEND_COUNT - COMMON_FRIEND_COUNT) {
+                friendListEntries.add(new Object[]{secondFriendListId, friendIds.get(i), UserDbStorage.UNCONFIRMED_STATUS});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO USER_FRIENDLIST_ENTRIES (FRIENDLIST_ID, ASSOCIATED_USER_ID, STATUS) " +
+                "VALUES (?, ?, ?)", friendListEntries);
+
+        countingDataSource.reset();
+        long startNanos = System.nanoTime();
+        List<User> commonFriends = userDbStorage.getCommonFriendList(firstUser.getId(), secondUser.getId());
+        long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+
+        log.info("Общие друзья (БД): друзей " + FRIEND_COUNT + ", общих " + commonFriends.size() +
+                ", запросов " + countingDataSource.getStatementCount() + ", время " + elapsedMicros + " мкс");
+
+        assertEquals(COMMON_FRIEND_COUNT, commonFriends.size());
+        assertEquals(1, countingDataSource.getStatementCount());
+    }
+
+    @Test
+    void inMemoryCommonFriendsUsesSortedIntersection() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        User firstUser = userStorage.addNew(createUser("first"));
+        User secondUser = userStorage.addNew(createUser("second"));
+
+        for (int i = 0; i < FRIEND_COUNT * 2 - COMMON_FRIEND_COUNT; i++) {
+            User friend = userStorage.addNew(createUser("friend" + i));
+
+            if (i < FRIEND_COUNT) {
+                userStorage.addToFriends(firstUser, friend);
+            }
+
+            if (i >= FRIEND_COUNT - COMMON_FRIEND_COUNT) {
+                userStorage.addToFriends(secondUser, friend);
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        List<User> commonFriends = userStorage.getCommonFriendList(firstUser.getId(), secondUser.getId());
+        long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+
+        log.info("Общие друзья (память): друзей " + FRIEND_COUNT + ", общих " + commonFriends.size() +
+                ", время " + elapsedMicros + " мкс");
+
+        assertEquals(COMMON_FRIEND_COUNT, commonFriends.size());
+    }
+
+    private User createUser(String login) {
+        return User.builder()
+                .login(login)
+                .name(login)
+                .email(login + "@ya.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmCacheTest {
+
+    @Test
+    void checkNoStaleReadAfterConcurrentWrites() throws InterruptedException {
+        FilmCache filmCache = new FilmCache(10);
+        AtomicInteger storedVersion = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+            boolean writer = thread % 2 == 0;
+
+            executorService.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (writer) {
+                        storedVersion.incrementAndGet();
+                        filmCache.invalidate(1L);
+                    } else {
+                        filmCache.get(1L, id -> loadFilm(id, storedVersion.get()));
+                    }
+                }
+            });
+        }
+
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        Film film = filmCache.get(1L, id -> loadFilm(id, storedVersion.get()));
+
+        assertEquals("Версия " + storedVersion.get(), film.getName());
+    }
+
+    @Test
+    void checkCacheIsBounded() {
+        FilmCache filmCache = new FilmCache(10);
+
+        for (long id = 1; id <= 100; id++) {
+            filmCache.get(id, filmId -> loadFilm(filmId, 0));
+        }
+
+        filmCache.cleanUp();
+
+        assertTrue(filmCache.getStats().evictionCount() >= 90);
+    }
+
+    private Film loadFilm(Long id, int version) {
+        return Film.builder().id(id).name("Версия " + version).build();
+    }
+
+}
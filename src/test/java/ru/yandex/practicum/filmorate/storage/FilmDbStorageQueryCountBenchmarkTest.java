@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@JdbcTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmDbStorageQueryCountBenchmarkTest {
+    private static final int TOP_COUNT = 10;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void popularRequestCountDoesNotDependOnCatalogueSize() {
+        StatementCountingDataSource countingDataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        FilmDbStorage filmDbStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource),
+                new ReferenceDataCache(jdbcTemplate), new FilmCache(1000), new FilmVersions());
+        User user = addBenchmarkUser();
+
+        fillCatalogue(filmDbStorage, user, 20);
+        int smallCatalogueStatements = measure(countingDataSource, "Популярные фильмы", 20,
+                () -> assertEquals(TOP_COUNT, filmDbStorage.getPopular(TOP_COUNT).size()));
+
+        fillCatalogue(filmDbStorage, user, 500);
+        int largeCatalogueStatements = measure(countingDataSource, "Популярные фильмы", 500,
+                () -> assertEquals(TOP_COUNT, filmDbStorage.getPopular(TOP_COUNT).size()));
+
+        assertEquals(smallCatalogueStatements, largeCatalogueStatements);
+    }
+
+    @Test
+    void allFilmsRequestCountDoesNotDependOnCatalogueSize() {
+        StatementCountingDataSource countingDataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        FilmDbStorage filmDbStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource),
+                new ReferenceDataCache(jdbcTemplate), new FilmCache(1000), new FilmVersions());
+        User user = addBenchmarkUser();
+
+        fillCatalogue(filmDbStorage, user, 20);
+        int smallCatalogueStatements = measure(countingDataSource, "Список фильмов", 20,
+                () -> assertEquals(20, filmDbStorage.getAll().size()));
+
+        fillCatalogue(filmDbStorage, user, 500);
+        int largeCatalogueStatements = measure(countingDataSource, "Список фильмов", 500,
+                () -> assertEquals(500, filmDbStorage.getAll().size()));
+
+        assertEquals(smallCatalogueStatements, largeCatalogueStatements);
+    }
+
+    @Test
+    void filmChangeWritesOnlyChangedAssignments() {
+        StatementCountingDataSource countingDataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        FilmDbStorage filmDbStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource),
+                new ReferenceDataCache(jdbcTemplate), new FilmCache(1000), new FilmVersions());
+        Film film = filmDbStorage.addNew(Film.builder()
+                .name("Benchmark film")
+                .description("Benchmark film description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .mpa(MPA.builder().id(1L).build())
+                .genres(new ArrayList<>(List.of(Genre.builder().id(1L).build(), Genre.builder().id(2L).build())))
+                .build());
+
+        int unchangedStatements = measure(countingDataSource, "Изменение фильма без изменения связей", 1,
+                () -> filmDbStorage.change(film));
+
+        assertEquals(2, unchangedStatements);
+
+        film.setMpa(MPA.builder().id(2L).build());
+        film.setGenres(List.of(Genre.builder().id(2L).build(), Genre.builder().id(3L).build()));
+
+        int changedStatements = measure(countingDataSource, "Изменение рейтинга и жанров фильма", 1,
+                () -> filmDbStorage.change(film));
+
+        assertEquals(5, changedStatements);
+
+        Film filmFromDb = filmDbStorage.getFilmById(film.getId());
+
+        assertEquals(2L, filmFromDb.getMpa().getId());
+        assertEquals(List.of(2L, 3L), List.of(filmFromDb.getGenres().get(0).getId(),
+                filmFromDb.getGenres().get(1).getId()));
+    }
+
+    private User addBenchmarkUser() {
+        return new UserDbStorage(jdbcTemplate).addNew(User.builder()
+                .login("benchmark")
+                .name("Benchmark User")
+                .email("benchmark@ya.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    private void fillCatalogue(FilmDbStorage filmDbStorage, User user, int catalogueSize) {
+        int existingFilms = filmDbStorage.getAll().size();
+
+        for (int i = existingFilms; i < catalogueSize; i++) {
+            List<Genre> genres = new ArrayList<>();
+            genres.add(Genre.builder().id((long) (i % 6 + 1)).build());
+
+            Film film = filmDbStorage.addNew(Film.builder()
+                    .name("Benchmark film " + i)
+                    .description("Benchmark film description")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(90)
+                    .mpa(MPA.builder().id(1L).build())
+                    .genres(genres)
+                    .build());
+
+            if (i % 3 == 0) {
+                filmDbStorage.createLikeFilmByUser(film.getId(), user.getId());
+            }
+        }
+    }
+
+    private int measure(StatementCountingDataSource countingDataSource, String operation, int catalogueSize,
+                        Runnable request) {
+        countingDataSource.reset();
+        long startNanos = System.nanoTime();
+        request.run();
+        long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+        int statementCount = countingDataSource.getStatementCount();
+
+        log.info(operation + ": каталог " + catalogueSize + ", запросов " + statementCount +
+                ", время " + elapsedMicros + " мкс");
+
+        return statementCount;
+    }
+
+}
@@ -8,8 +8,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeEvent;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.model.User;
 
@@ -17,6 +21,7 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class FilmDbStorageTest {
     private final JdbcTemplate jdbcTemplate;
     private FilmDbStorage filmDbStorage;
+    private FilmCache filmCache;
     private UserDbStorage userDbStorage;
     private static DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private Film film1;
@@ -39,7 +45,8 @@ class FilmDbStorageTest {
     @BeforeEach
     public void setUp() {
         userDbStorage = new UserDbStorage(jdbcTemplate);
-        filmDbStorage = new FilmDbStorage(jdbcTemplate);
+        filmCache = new FilmCache(1000);
+        filmDbStorage = new FilmDbStorage(jdbcTemplate, new ReferenceDataCache(jdbcTemplate), filmCache, new FilmVersions());
 
         film1 = Film.builder()
                 .name("Кикуджиро")
@@ -224,6 +231,68 @@ class FilmDbStorageTest {
 
     }
 
+    @Test
+    public void checkDuplicateGenresStoredOnce() {
+        film1.getGenres().add(genre1);
+        film1.getGenres().add(genre1);
+        film1.getGenres().add(genre2);
+
+        filmDbStorage.addNew(film1);
+
+        Integer genreAssignmentCount = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM GENRE_ASSIGNMENTS WHERE FILM_ID = ?", Integer.class, film1.getId());
+
+        assertEquals(2, genreAssignmentCount);
+        assertEquals(2, filmDbStorage.getFilmById(film1.getId()).getGenres().size());
+    }
+
+    @Test
+    public void checkBatchAddition() {
+        film1.getGenres().add(genre1);
+        film1.getGenres().add(genre2);
+
+        Film filmWithoutName = Film.builder()
+                .name("")
+                .description("Без названия")
+                .releaseDate(LocalDate.parse("2001-01-01", dateTimeFormatter))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .build();
+
+        Film filmWithUnknownMPA = Film.builder()
+                .name("Неизвестный рейтинг")
+                .description("Неизвестный рейтинг")
+                .releaseDate(LocalDate.parse("2001-01-01", dateTimeFormatter))
+                .duration(100)
+                .mpa(MPA.builder().id(999L).build())
+                .build();
+
+        Film film2 = Film.builder()
+                .name("Сонатина")
+                .description("Якудза Мурокава отправляется на Окинаву.")
+                .releaseDate(LocalDate.parse("1993-06-05", dateTimeFormatter))
+                .duration(94)
+                .mpa(MPA.builder().id(4L).build())
+                .build();
+
+        List<BatchItemResult> results = filmDbStorage.addNewBatch(
+                List.of(film1, filmWithoutName, filmWithUnknownMPA, film2));
+
+        assertEquals(4, results.size());
+        assertEquals(film1.getId(), results.get(0).getId());
+        assertNull(results.get(0).getError());
+        assertEquals("Название фильма не может быть пустым", results.get(1).getError());
+        assertEquals("Рейтинг с ID 999 не найден.", results.get(2).getError());
+        assertNull(results.get(2).getId());
+        assertEquals(film2.getId(), results.get(3).getId());
+
+        Film film1FromDb = filmDbStorage.getFilmById(film1.getId());
+
+        assertEquals(List.of(genre1, genre2), film1FromDb.getGenres());
+        assertEquals("G", film1FromDb.getMpa().getName());
+        assertEquals("R", filmDbStorage.getFilmById(film2.getId()).getMpa().getName());
+    }
+
     @Test
     void checkNotExistingMPA() {
         Long inExistingMPAId = 99999L;
@@ -290,6 +359,122 @@ class FilmDbStorageTest {
 
     }
 
+    @Test
+    void checkFindByFilter() {
+        film1.setGenres(List.of(genre1, genre2));
+        Film storedFilm1 = filmDbStorage.getFilmById(filmDbStorage.addNew(film1).getId());
+        Film storedFilm2 = filmDbStorage.getFilmById(filmDbStorage.addNew(Film.builder()
+                .name("Сонатина")
+                .description("Якудза Мурокава отправляется на Окинаву.")
+                .releaseDate(LocalDate.parse("1993-06-05", dateTimeFormatter))
+                .duration(94)
+                .mpa(MPA.builder().id(4L).build())
+                .genres(new ArrayList<>(List.of(genre2)))
+                .build()).getId());
+
+        assertEquals(List.of(storedFilm1, storedFilm2),
+                filmDbStorage.findByFilter(FilmFilter.builder().genre(2L).build(), 0L, 10));
+        assertEquals(List.of(storedFilm1),
+                filmDbStorage.findByFilter(FilmFilter.builder().genre(1L).build(), 0L, 10));
+        assertEquals(List.of(storedFilm2),
+                filmDbStorage.findByFilter(FilmFilter.builder().mpa(4L).build(), 0L, 10));
+        assertEquals(List.of(storedFilm2), filmDbStorage.findByFilter(FilmFilter.builder()
+                .releasedFrom(LocalDate.of(1990, 1, 1))
+                .releasedTo(LocalDate.of(1995, 1, 1))
+                .build(), 0L, 10));
+        assertEquals(List.of(storedFilm1), filmDbStorage.findByFilter(FilmFilter.builder()
+                .genre(2L)
+                .minDuration(100)
+                .build(), 0L, 10));
+        assertEquals(List.of(storedFilm2),
+                filmDbStorage.findByFilter(FilmFilter.builder().genre(2L).build(), storedFilm1.getId(), 10));
+        assertTrue(filmDbStorage.findByFilter(FilmFilter.builder().genre(2L).mpa(3L).build(), 0L, 10).isEmpty());
+    }
+
+    @Test
+    void checkStreamingExportMatchesGetAll() {
+        film1.getGenres().add(genre3);
+        film1.getGenres().add(genre1);
+        filmDbStorage.addNew(film1);
+        filmDbStorage.addNew(Film.builder()
+                .name("Сонатина")
+                .description("Якудза Мурокава отправляется на Окинаву.")
+                .releaseDate(LocalDate.parse("1993-06-05", dateTimeFormatter))
+                .duration(94)
+                .mpa(MPA.builder().id(4L).build())
+                .genres(new ArrayList<>())
+                .build());
+
+        List<Film> exportedFilms = new ArrayList<>();
+
+        filmDbStorage.streamAll(exportedFilms::add);
+
+        assertEquals(filmDbStorage.getAll(), exportedFilms);
+        assertEquals(List.of(genre1, genre3), exportedFilms.get(exportedFilms.size() - 2).getGenres());
+        assertTrue(exportedFilms.get(exportedFilms.size() - 1).getGenres().isEmpty());
+    }
+
+    @Test
+    void checkFilmCacheInvalidatedOnChange() {
+        filmDbStorage.addNew(film1);
+        filmDbStorage.getFilmById(film1.getId()).setName("Изменено вызывающим");
+
+        assertEquals("Кикуджиро", filmDbStorage.getFilmById(film1.getId()).getName());
+        assertEquals(1, filmCache.getStats().hitCount());
+
+        userDbStorage.addNew(user1);
+        filmDbStorage.createLikeFilmByUser(film1.getId(), user1.getId());
+        film1.setName("Кикуджиро 2");
+        film1.getGenres().add(genre2);
+        filmDbStorage.change(film1);
+
+        Film changedFilm = filmDbStorage.getFilmById(film1.getId());
+
+        assertEquals("Кикуджиро 2", changedFilm.getName());
+        assertEquals(List.of(genre2), changedFilm.getGenres());
+        assertEquals(0, filmCache.getStats().evictionCount());
+    }
+
+    @Test
+    void checkLikeEventsBatch() {
+        filmDbStorage.addNew(film1);
+        userDbStorage.addNew(user1);
+        userDbStorage.addNew(user2);
+        userDbStorage.addNew(user3);
+
+        filmDbStorage.createLikeFilmByUser(film1.getId(), user3.getId());
+        filmDbStorage.applyLikeEvents(List.of(
+                createLikeEvent(film1.getId(), user1.getId(), LikeOperation.LIKE),
+                createLikeEvent(film1.getId(), user2.getId(), LikeOperation.LIKE),
+                createLikeEvent(film1.getId(), user1.getId(), LikeOperation.LIKE),
+                createLikeEvent(film1.getId(), user2.getId(), LikeOperation.UNLIKE),
+                createLikeEvent(film1.getId(), user3.getId(), LikeOperation.UNLIKE)));
+
+        assertEquals(Set.of(user1.getId()), filmDbStorage.getLikeListForFilm(film1.getId()));
+        assertEquals(Map.of(film1.getId(), Set.of(user1.getId())), filmDbStorage.getAllLikeLists());
+        assertEquals(1, filmDbStorage.getFilmLikeStorageCount(film1.getId()));
+        assertEquals(Set.of(film1.getId()), filmDbStorage.getExistingFilmIds(List.of(film1.getId(), 999L)));
+        assertEquals(Set.of(user1.getId(), user2.getId()),
+                userDbStorage.getExistingUserIds(List.of(user1.getId(), user2.getId(), 999L)));
+    }
+
+    @Test
+    void checkLikeCountReconciliation() {
+        filmDbStorage.addNew(film1);
+        userDbStorage.addNew(user1);
+        userDbStorage.addNew(user2);
+
+        filmDbStorage.createLikeFilmByUser(film1.getId(), user1.getId());
+        filmDbStorage.createLikeFilmByUser(film1.getId(), user2.getId());
+
+        jdbcTemplate.update("UPDATE FILMS SET LIKE_COUNT = 0 WHERE ID = ?", film1.getId());
+        assertEquals(0, filmDbStorage.getFilmLikeStorageCount(film1.getId()));
+
+        assertEquals(1, filmDbStorage.rebuildLikeCounts());
+        assertEquals(2, filmDbStorage.getFilmLikeStorageCount(film1.getId()));
+        assertEquals(0, filmDbStorage.rebuildLikeCounts());
+    }
+
     @Test
     void likeFilmNotExisting() {
         userDbStorage.addNew(user1);
@@ -301,6 +486,48 @@ class FilmDbStorageTest {
 
     }
 
+    @Test
+    void checkPopularFilmsOrder() {
+        Film film2 = Film.builder()
+                .name("Сонатина")
+                .description("Якудза Мурокава отправляется на Окинаву.")
+                .releaseDate(LocalDate.parse("1993-06-05", dateTimeFormatter))
+                .duration(94)
+                .mpa(MPA.builder().id(4L).build())
+                .genres(new ArrayList<>())
+                .build();
+
+        filmDbStorage.addNew(film1);
+        filmDbStorage.addNew(film2);
+        userDbStorage.addNew(user1);
+        userDbStorage.addNew(user2);
+
+        filmDbStorage.createLikeFilmByUser(film1.getId(), user1.getId());
+        filmDbStorage.createLikeFilmByUser(film2.getId(), user1.getId());
+        filmDbStorage.createLikeFilmByUser(film2.getId(), user2.getId());
+
+        List<Film> popularFilms = filmDbStorage.getPopular(2);
+
+        assertEquals(2, popularFilms.size());
+        assertEquals(film2.getId(), popularFilms.get(0).getId());
+        assertEquals(film1.getId(), popularFilms.get(1).getId());
+        assertEquals(filmDbStorage.getAll().size(), filmDbStorage.getPopular(null).size());
+    }
+
+    @Test
+    void checkReferenceDataInvalidation() {
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        int initialGenreCount = referenceDataCache.getAllGenres().size();
+
+        jdbcTemplate.update("INSERT INTO GENRES (NAME) VALUES (?)", "Вестерн");
+
+        assertEquals(initialGenreCount, referenceDataCache.getAllGenres().size());
+
+        referenceDataCache.invalidate();
+
+        assertEquals(initialGenreCount + 1, referenceDataCache.getAllGenres().size());
+    }
+
     @Test
     void getAllMPAs() {
         assertFalse(filmDbStorage.getAllMPAs().isEmpty());
@@ -311,4 +538,8 @@ class FilmDbStorageTest {
         assertFalse(filmDbStorage.getAllGenres().isEmpty());
     }
 
+    private LikeEvent createLikeEvent(Long filmId, Long userId, LikeOperation operation) {
+        return LikeEvent.builder().filmId(filmId).userId(userId).operation(operation).build();
+    }
+
 }
\ No newline at end of file
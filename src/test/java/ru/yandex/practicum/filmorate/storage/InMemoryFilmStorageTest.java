@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.FilmValidationException;
+import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    void checkPopularFilmsOrder() {
+        Film film1 = filmStorage.addNew(createFilm("Первый"));
+        Film film2 = filmStorage.addNew(createFilm("Второй"));
+        Film film3 = filmStorage.addNew(createFilm("Третий"));
+
+        filmStorage.createLikeFilmByUser(film2.getId(), 1L);
+        filmStorage.createLikeFilmByUser(film2.getId(), 2L);
+        filmStorage.createLikeFilmByUser(film3.getId(), 1L);
+        filmStorage.createLikeFilmByUser(film3.getId(), 1L);
+
+        List<Film> popularFilms = filmStorage.getPopular(null);
+
+        assertEquals(List.of(film2, film3, film1), popularFilms);
+        assertEquals(List.of(film2), filmStorage.getPopular(1));
+
+        filmStorage.deleteLikeFilmByUser(film2.getId(), 1L);
+        filmStorage.deleteLikeFilmByUser(film2.getId(), 2L);
+
+        assertEquals(List.of(film3, film1, film2), filmStorage.getPopular(null));
+        assertEquals(0, filmStorage.getFilmLikeStorageCount(film2.getId()));
+    }
+
+    @Test
+    void checkConcurrentWritesKeepStorageConsistent() throws InterruptedException {
+        int writers = 16;
+        int filmsPerWriter = 200;
+        ExecutorService executorService = Executors.newFixedThreadPool(writers);
+        Film likedFilm = filmStorage.addNew(createFilm("Общий"));
+
+        for (int writer = 0; writer < writers; writer++) {
+            long userId = writer + 1;
+
+            executorService.submit(() -> {
+                for (int i = 0; i < filmsPerWriter; i++) {
+                    filmStorage.addNew(createFilm("Фильм " + userId + "-" + i));
+                    filmStorage.createLikeFilmByUser(likedFilm.getId(), userId);
+                    filmStorage.createLikeFilmByUser(likedFilm.getId(), userId + 1000);
+                    filmStorage.deleteLikeFilmByUser(likedFilm.getId(), userId + 1000);
+                }
+            });
+        }
+
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Film> allFilms = filmStorage.getAll();
+
+        assertEquals(writers * filmsPerWriter + 1, allFilms.size());
+        assertEquals(allFilms.size(), allFilms.stream().map(Film::getId).distinct().count());
+        assertEquals(writers, filmStorage.getFilmLikeStorageCount(likedFilm.getId()));
+        assertEquals(writers, filmStorage.getLikeListForFilm(likedFilm.getId()).size());
+        assertEquals(likedFilm, filmStorage.getPopular(1).get(0));
+        assertEquals(allFilms.size(), filmStorage.getPopular(null).size());
+    }
+
+    @Test
+    void checkStoredFilmsAreIsolatedFromCallers() {
+        Film film = createFilm("Оригинал");
+        Long filmId = filmStorage.addNew(film).getId();
+
+        film.setName("Изменено вызывающим");
+        assertEquals("Оригинал", filmStorage.getFilmById(filmId).getName());
+
+        Film readFilm = filmStorage.getFilmById(filmId);
+
+        readFilm.setDuration(1);
+        filmStorage.getAll().get(0).setDescription("Изменено через список");
+        assertEquals(100, filmStorage.getFilmById(filmId).getDuration());
+        assertEquals("Описание", filmStorage.getFilmById(filmId).getDescription());
+
+        Film changedFilm = filmStorage.change(Film.builder()
+                .id(filmId)
+                .name("Новое название")
+                .description("Новое описание")
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .duration(90)
+                .build());
+
+        assertEquals("Оригинал", readFilm.getName());
+        assertEquals("Новое название", changedFilm.getName());
+        assertEquals(changedFilm, filmStorage.getFilmById(filmId));
+        assertNotSame(filmStorage.getFilmById(filmId), filmStorage.getFilmById(filmId));
+    }
+
+    @Test
+    void checkConcurrentChangesAreNeverObservedHalfApplied() throws InterruptedException {
+        Long filmId = filmStorage.addNew(createFilm("Версия 0")).getId();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<String> tornReads = new CopyOnWriteArrayList<>();
+
+        for (int writer = 0; writer < 2; writer++) {
+            executorService.submit(() -> {
+                for (int i = 1; i <= 2000; i++) {
+                    filmStorage.change(Film.builder()
+                            .id(filmId)
+                            .name("Версия " + i)
+                            .description("Описание " + i)
+                            .releaseDate(LocalDate.of(2000, 1, 1))
+                            .duration(i)
+                            .build());
+                }
+            });
+        }
+
+        for (int reader = 0; reader < 2; reader++) {
+            executorService.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    Film film = filmStorage.getAll().get(0);
+                    String version = film.getName().substring("Версия ".length());
+
+                    if (!version.equals("0") && !film.getDescription().equals("Описание " + version)) {
+                        tornReads.add(film.toString());
+                    }
+                }
+            });
+        }
+
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(tornReads.isEmpty(), tornReads.toString());
+    }
+
+    @Test
+    void checkFilterCursorOutOfIdRange() {
+        Film film1 = filmStorage.addNew(createFilm("Первый"));
+        Film film2 = filmStorage.addNew(createFilm("Второй"));
+        FilmFilter filter = FilmFilter.builder().minDuration(1).build();
+
+        assertEquals(List.of(film1, film2), filmStorage.findByFilter(filter, -5L, 10));
+        assertEquals(List.of(film1, film2), filmStorage.findByFilter(filter, Long.MIN_VALUE, 10));
+        assertTrue(filmStorage.findByFilter(filter, (long) Integer.MAX_VALUE - 1, 10).isEmpty());
+        assertTrue(filmStorage.findByFilter(filter, (long) Integer.MAX_VALUE, 10).isEmpty());
+        assertTrue(filmStorage.findByFilter(filter, Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    void checkReferencesAreValidatedAndNamed() {
+        Film film = createFilm("Первый");
+
+        film.setGenres(List.of(Genre.builder().id(2L).build()));
+        Film storedFilm = filmStorage.addNew(film);
+
+        assertEquals("G", filmStorage.getFilmById(storedFilm.getId()).getMpa().getName());
+        assertEquals("Драма", filmStorage.getFilmById(storedFilm.getId()).getGenres().get(0).getName());
+
+        Film unknownMpa = createFilm("Второй");
+
+        unknownMpa.setMpa(MPA.builder().id(99L).build());
+        Exception e = assertThrows(RecordNotFoundException.class, () -> filmStorage.addNew(unknownMpa));
+        assertEquals("Рейтинг с ID 99 не найден.", e.getMessage());
+
+        Film withoutMpa = createFilm("Третий");
+
+        withoutMpa.setMpa(null);
+        e = assertThrows(FilmValidationException.class, () -> filmStorage.addNew(withoutMpa));
+        assertEquals("Рейтинг фильма должен быть указан", e.getMessage());
+        assertEquals(1, filmStorage.getAll().size());
+
+        Film unknownGenre = createFilm("Первый");
+
+        unknownGenre.setId(storedFilm.getId());
+        unknownGenre.setMpa(MPA.builder().id(3L).build());
+        unknownGenre.setGenres(List.of(Genre.builder().id(99L).build()));
+        e = assertThrows(RecordNotFoundException.class, () -> filmStorage.change(unknownGenre));
+        assertEquals("Жанр с ID 99 не найден.", e.getMessage());
+        assertEquals("G", filmStorage.getFilmById(storedFilm.getId()).getMpa().getName());
+
+        unknownGenre.setGenres(List.of(Genre.builder().id(1L).build()));
+        filmStorage.change(unknownGenre);
+
+        assertEquals("PG-13", filmStorage.getFilmById(storedFilm.getId()).getMpa().getName());
+        assertEquals("Комедия", filmStorage.getFilmById(storedFilm.getId()).getGenres().get(0).getName());
+    }
+
+    @Test
+    void checkReferenceData() {
+        assertEquals(6, filmStorage.getAllGenres().size());
+        assertEquals(5, filmStorage.getAllMPAs().size());
+        assertEquals("PG-13", filmStorage.getMPAById(3L).getName());
+        assertEquals("Комедия", filmStorage.getGenreById(1L).getName());
+
+        Exception e = assertThrows(RecordNotFoundException.class, () -> filmStorage.getGenreById(99L));
+        assertEquals("Жанр с ID 99 не найден.", e.getMessage());
+    }
+
+    private Film createFilm(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MPA.builder().id(1L).build())
+                .genres(new ArrayList<>())
+                .build();
+    }
+
+}
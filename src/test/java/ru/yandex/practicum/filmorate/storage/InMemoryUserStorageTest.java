@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Test
+    void checkFriendshipSurvivesUserChange() {
+        User user1 = userStorage.addNew(createUser("first"));
+        User user2 = userStorage.addNew(createUser("second"));
+
+        userStorage.addToFriends(user1, user2);
+        userStorage.change(User.builder()
+                .id(user2.getId())
+                .login("renamed")
+                .name("Renamed")
+                .email("renamed@ya.ru")
+                .birthday(user2.getBirthday())
+                .build());
+
+        assertEquals(List.of(userStorage.getUserById(user2.getId())), userStorage.getUserFriendList(user1.getId()));
+        assertEquals("renamed", userStorage.getUserFriendList(user1.getId()).get(0).getLogin());
+
+        userStorage.removeFromFriends(user1, userStorage.getUserById(user2.getId()), (userId, friendId) -> { });
+
+        assertTrue(userStorage.getUserFriendList(user1.getId()).isEmpty());
+    }
+
+    @Test
+    void checkConcurrentFriendOperations() throws InterruptedException {
+        int writers = 16;
+        int usersPerWriter = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(writers);
+        User popularUser = userStorage.addNew(createUser("popular"));
+
+        for (int writer = 0; writer < writers; writer++) {
+            int writerId = writer;
+
+            executorService.submit(() -> {
+                for (int i = 0; i < usersPerWriter; i++) {
+                    User user = userStorage.addNew(createUser("user" + writerId + "x" + i));
+
+                    userStorage.addToFriends(popularUser, user);
+                    userStorage.addToFriends(user, popularUser);
+
+                    if (i % 2 == 0) {
+                        userStorage.removeFromFriends(user, popularUser, (userId, friendId) -> { });
+                    }
+                }
+            });
+        }
+
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<User> friendList = userStorage.getUserFriendList(popularUser.getId());
+        List<Long> friendIds = friendList.stream().map(User::getId).collect(Collectors.toList());
+
+        assertEquals(writers * usersPerWriter + 1, userStorage.getAll().size());
+        assertEquals(writers * usersPerWriter / 2, friendList.size());
+        assertEquals(friendIds.stream().sorted().collect(Collectors.toList()), friendIds);
+    }
+
+    @Test
+    void checkStoredUsersAreIsolatedFromCallers() {
+        User user = createUser("original");
+        Long userId = userStorage.addNew(user).getId();
+
+        user.setLogin("changed-by-caller");
+        assertEquals("original", userStorage.getUserById(userId).getLogin());
+
+        User readUser = userStorage.getUserById(userId);
+
+        readUser.setName("Изменено вызывающим");
+        userStorage.getAll().iterator().next().setEmail("changed@ya.ru");
+        assertEquals("original", userStorage.getUserById(userId).getName());
+        assertEquals("original@ya.ru", userStorage.getUserById(userId).getEmail());
+
+        User changedUser = userStorage.change(User.builder()
+                .id(userId)
+                .login("renamed")
+                .name("Renamed")
+                .email("renamed@ya.ru")
+                .birthday(LocalDate.of(1991, 1, 1))
+                .build());
+
+        assertEquals("Изменено вызывающим", readUser.getName());
+        assertEquals(changedUser, userStorage.getUserById(userId));
+        assertNotSame(userStorage.getUserById(userId), userStorage.getUserById(userId));
+    }
+
+    @Test
+    void checkConcurrentChangesAreNeverObservedHalfApplied() throws InterruptedException {
+        Long userId = userStorage.addNew(createUser("v0")).getId();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<String> tornReads = new CopyOnWriteArrayList<>();
+
+        for (int writer = 0; writer < 2; writer++) {
+            executorService.submit(() -> {
+                for (int i = 1; i <= 2000; i++) {
+                    User user = createUser("v" + i);
+
+                    user.setId(userId);
+                    userStorage.change(user);
+                }
+            });
+        }
+
+        for (int reader = 0; reader < 2; reader++) {
+            executorService.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    User user = userStorage.getUserById(userId);
+
+                    if (!user.getEmail().equals(user.getLogin() + "@ya.ru") || !user.getName().equals(user.getLogin())) {
+                        tornReads.add(user.toString());
+                    }
+                }
+            });
+        }
+
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(tornReads.isEmpty(), tornReads.toString());
+    }
+
+    private User createUser(String login) {
+        return User.builder()
+                .login(login)
+                .name(login)
+                .email(login + "@ya.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+}
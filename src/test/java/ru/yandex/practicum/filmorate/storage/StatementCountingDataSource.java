@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class StatementCountingDataSource extends DelegatingDataSource {
+    private final AtomicInteger statementCount = new AtomicInteger();
+
+    StatementCountingDataSource(DataSource dataSource) {
+        super(new TransactionAwareDataSourceProxy(dataSource));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")
+                            || method.getName().equals("prepareCall")
+                            || method.getName().equals("createStatement")) {
+                        statementCount.incrementAndGet();
+                    }
+
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    int getStatementCount() {
+        return statementCount.get();
+    }
+
+    void reset() {
+        statementCount.set(0);
+    }
+
+}
@@ -7,13 +7,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.RecordNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +30,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class UserDbStorageTest {
     private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
     private UserDbStorage userDbStorage;
     private static DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private User user1;
@@ -170,11 +180,134 @@ class UserDbStorageTest {
 
         assertTrue(userDbStorage.getUserFriendList(user1Id).contains(user2));
 
-        userDbStorage.removeFromFriends(user1, user2);
+        userDbStorage.removeFromFriends(user1, user2, (userId, friendId) -> { });
 
         assertFalse(userDbStorage.getUserFriendList(user1Id).contains(user2));
     }
 
+    @Test
+    public void checkCommonFriends() {
+        userDbStorage.addNew(user1);
+        userDbStorage.addNew(user2);
+        userDbStorage.addNew(user3);
+
+        userDbStorage.addToFriends(user1, user3);
+        userDbStorage.addToFriends(user2, user3);
+        userDbStorage.addToFriends(user1, user2);
+
+        List<User> commonFriends = userDbStorage.getCommonFriendList(user1.getId(), user2.getId());
+
+        assertEquals(List.of(user3), commonFriends);
+        assertTrue(userDbStorage.getCommonFriendList(user1.getId(), user3.getId()).isEmpty());
+    }
+
+    @Test
+    public void checkFriendshipStatusConfirmation() {
+        userDbStorage.addNew(user1);
+        userDbStorage.addNew(user2);
+
+        userDbStorage.addToFriends(user1, user2);
+
+        assertEquals(UserDbStorage.UNCONFIRMED_STATUS, getFriendshipStatus(user1.getId(), user2.getId()));
+
+        userDbStorage.addToFriends(user2, user1);
+        userDbStorage.addToFriends(user2, user1);
+
+        assertEquals(UserDbStorage.CONFIRMED_STATUS, getFriendshipStatus(user1.getId(), user2.getId()));
+        assertEquals(UserDbStorage.CONFIRMED_STATUS, getFriendshipStatus(user2.getId(), user1.getId()));
+
+        List<List<Long>> removedFriendships = new ArrayList<>();
+
+        userDbStorage.removeFromFriends(user2, user1,
+                (userId, friendId) -> removedFriendships.add(List.of(userId, friendId)));
+
+        assertEquals(List.of(List.of(user2.getId(), user1.getId())), removedFriendships);
+
+        assertEquals(UserDbStorage.UNCONFIRMED_STATUS, getFriendshipStatus(user1.getId(), user2.getId()));
+        assertNull(getFriendshipStatus(user2.getId(), user1.getId()));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void checkConcurrentMutualFriendRequests() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<User> users = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 40; i++) {
+                users.add(userDbStorage.addNew(User.builder()
+                        .login("storm" + i)
+                        .name("Storm " + i)
+                        .email("storm" + i + "@ya.ru")
+                        .birthday(LocalDate.of(1990, 1, 1))
+                        .build()));
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> requests = new ArrayList<>();
+
+            for (int i = 0; i < users.size(); i += 2) {
+                User first = users.get(i);
+                User second = users.get(i + 1);
+
+                requests.add(executor.submit(() -> {
+                    start.await();
+                    transactionTemplate.executeWithoutResult(status -> userDbStorage.addToFriends(first, second));
+                    return null;
+                }));
+                requests.add(executor.submit(() -> {
+                    start.await();
+                    transactionTemplate.executeWithoutResult(status -> userDbStorage.addToFriends(second, first));
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> request : requests) {
+                request.get();
+            }
+
+            for (int i = 0; i < users.size(); i += 2) {
+                Long firstId = users.get(i).getId();
+                Long secondId = users.get(i + 1).getId();
+
+                assertEquals(UserDbStorage.CONFIRMED_STATUS, getFriendshipStatus(firstId, secondId));
+                assertEquals(UserDbStorage.CONFIRMED_STATUS, getFriendshipStatus(secondId, firstId));
+            }
+        } finally {
+            executor.shutdownNow();
+            users.forEach(user -> jdbcTemplate.update("DELETE FROM USERS WHERE ID = ?", user.getId()));
+        }
+    }
+
+    private Integer getFriendshipStatus(Long userId, Long friendId) {
+        List<Integer> statuses = jdbcTemplate.queryForList("SELECT ufe.STATUS FROM USER_FRIENDLIST_ENTRIES ufe " +
+                "INNER JOIN USER_FRIENDLISTS uf ON ufe.FRIENDLIST_ID = uf.ID " +
+                "WHERE uf.USER_ID = ? AND ufe.ASSOCIATED_USER_ID = ?", Integer.class, userId, friendId);
+
+        assertTrue(statuses.size() <= 1);
+
+        return statuses.isEmpty() ? null : statuses.get(0);
+    }
+
+    @Test
+    public void checkKeysetPagination() {
+        userDbStorage.addNew(user1);
+        userDbStorage.addNew(user2);
+        userDbStorage.addNew(user3);
+        userDbStorage.addToFriends(user1, user3);
+        userDbStorage.addToFriends(user1, user2);
+
+        assertEquals(List.of(user1, user2), userDbStorage.getPage(0L, 2));
+        assertEquals(List.of(user3), userDbStorage.getPage(user2.getId(), 2));
+        assertTrue(userDbStorage.getPage(user3.getId(), 2).isEmpty());
+
+        assertEquals(List.of(user2), userDbStorage.getUserFriendListPage(user1.getId(), 0L, 1));
+        assertEquals(List.of(user3), userDbStorage.getUserFriendListPage(user1.getId(), user2.getId(), 1));
+        assertEquals(List.of(user2, user3), userDbStorage.getUserFriendList(user1.getId()));
+    }
+
     @Test
     void checkUserNotExisting() {
         userDbStorage.addNew(user1);